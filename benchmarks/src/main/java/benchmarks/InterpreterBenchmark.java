@@ -0,0 +1,65 @@
+package benchmarks;
+
+import interpreter.Engine;
+import interpreter.Interpreter;
+import lexer.Lexer;
+import optimizer.Optimizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import parser.AST.AST;
+import parser.Parser;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpreterBenchmark {
+    @Param({"arithmetic", "string", "branch"})
+    public String program;
+
+    @Param({"TREE_WALKER", "VM", "JIT"})
+    public Engine engine;
+
+    @Param({"1000"})
+    public int size;
+
+    private Interpreter interpreter;
+    private AST ast;
+
+    @Setup
+    public void setup() {
+        String source;
+        switch (program) {
+            case "arithmetic":
+                source = Programs.arithmetic(size);
+                break;
+            case "string":
+                source = Programs.strings(size);
+                break;
+            default:
+                source = Programs.branches(size);
+                break;
+        }
+        interpreter = new Interpreter(engine);
+        // Every program starts by re-initializing its variables, so one resolved tree can be run repeatedly
+        ast = interpreter.resolve(Optimizer.optimize(new Parser(new Lexer(source)).parseProgram()));
+    }
+
+    @Benchmark
+    public Object interpret() {
+        return interpreter.interpret(ast);
+    }
+}
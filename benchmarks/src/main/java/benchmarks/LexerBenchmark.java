@@ -0,0 +1,52 @@
+package benchmarks;
+
+import lexer.CompactLexer;
+import lexer.Lexer;
+import lexer.Token;
+import lexer.TokenBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int statements;
+
+    private String source;
+    private ByteBuffer bytes;
+
+    @Setup
+    public void setup() {
+        source = Programs.statements(statements);
+        bytes = ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public List<Token> tokenize() {
+        return new Lexer(source).tokenize();
+    }
+
+    @Benchmark
+    public TokenBuffer tokenizeCompact() {
+        return new CompactLexer(bytes).tokenize();
+    }
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import lexer.Lexer;
+import lexer.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import parser.AST.AST;
+import parser.Parser;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({"deep", "wide", "statements"})
+    public String shape;
+
+    @Param({"100", "1000"})
+    public int size;
+
+    private List<Token> tokens;
+
+    @Setup
+    public void setup() {
+        String source;
+        switch (shape) {
+            case "deep":
+                source = Programs.deepExpression(size);
+                break;
+            case "wide":
+                source = Programs.wideExpression(size);
+                break;
+            default:
+                source = Programs.statements(size);
+                break;
+        }
+        tokens = new Lexer(source).tokenize();
+    }
+
+    @Benchmark
+    public AST parseProgram() {
+        Iterator<Token> iterator = tokens.iterator();
+        return new Parser(iterator::next).parseProgram();
+    }
+}
@@ -0,0 +1,75 @@
+package benchmarks;
+
+final class Programs {
+    private Programs() {
+    }
+
+    static String statements(int count) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("let a = 1;\nlet b = 2;\nlet s = \"x\";\n");
+        for (int i = 0; i < count; i++) {
+            switch (i % 4) {
+                case 0:
+                    sb.append("let a = a * 3 + ").append(i).append(" - b / 2;\n");
+                    break;
+                case 1:
+                    sb.append("let s = \"item\" + ").append(i).append(";\n");
+                    break;
+                case 2:
+                    sb.append("if true then a - b else b + 1; // branch\n");
+                    break;
+                default:
+                    sb.append("let c").append(i).append(" = (a + b) * (a - b);\n");
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    static String deepExpression(int depth) {
+        StringBuilder sb = new StringBuilder("let x = ");
+        for (int i = 0; i < depth; i++) {
+            sb.append("(1 + ");
+        }
+        sb.append('1');
+        for (int i = 0; i < depth; i++) {
+            sb.append(')');
+        }
+        return sb.append(";\n").toString();
+    }
+
+    static String wideExpression(int width) {
+        StringBuilder sb = new StringBuilder("let x = 1");
+        for (int i = 0; i < width; i++) {
+            sb.append(i % 2 == 0 ? " + " : " * ").append(i);
+        }
+        return sb.append(";\n").toString();
+    }
+
+    static String arithmetic(int count) {
+        StringBuilder sb = new StringBuilder("let a = 7;\nlet b = 3;\nlet c = 0;\n");
+        for (int i = 0; i < count; i++) {
+            sb.append("let c = c + a * b - (a - b) / 2;\n");
+            sb.append("let a = a + 1;\n");
+        }
+        return sb.toString();
+    }
+
+    static String strings(int count) {
+        StringBuilder sb = new StringBuilder("let s = \"\";\nlet n = 0;\n");
+        for (int i = 0; i < count; i++) {
+            sb.append("let s = s + \"line \" + n;\n");
+            sb.append("let n = n + 1;\n");
+        }
+        return sb.toString();
+    }
+
+    static String branches(int count) {
+        StringBuilder sb = new StringBuilder("let t = true;\nlet x = 0;\n");
+        for (int i = 0; i < count; i++) {
+            sb.append("if t then x + 1 else x - 1;\n");
+            sb.append("let t = not t;\n");
+        }
+        return sb.toString();
+    }
+}
@@ -1,27 +1,57 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
+import batch.BatchRunner;
+import cache.ProgramCache;
+import daemon.Daemon;
+import interpreter.Interpreter;
+import interpreter.Utils;
+import lexer.CompactLexer;
+import output.BufferedOutputSink;
+import parser.AST.AST;
+
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 public class Main {
-    public static void main(String[] args) throws IOException {
+    public static void main(String[] args) throws Exception {
+        Utils.callWithLargeStack(() -> {
+            run(args);
+            return null;
+        });
+    }
+
+    private static void run(String[] args) throws IOException {
         if (args.length == 0) {
-            System.out.println("Usage: java Main <filename>");
+            System.out.println("Usage: java Main <filename | -> | --batch <directory | file>... | --daemon [options]");
             System.exit(1);
         }
-
-        String filename = args[0];
-        BufferedReader reader = new BufferedReader(new FileReader(filename));
-        StringBuilder sb = new StringBuilder();
-
-        String line;
-        while ((line = reader.readLine()) != null) {
-            sb.append(line).append("\n");
+        if (args[0].equals("--batch")) {
+            BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args[0].equals("--daemon")) {
+            Daemon.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
         }
 
-        reader.close();
-
-        String input = sb.toString();
+        String filename = args[0];
         Interpreter interpreter = new Interpreter();
-        interpreter.interpret(input);
+        ProgramCache cache = ProgramCache.fromSystemProperties();
+        // Files and stdin are streamed, unless the program cache is switched on for files
+        try {
+            if (cache != null && !filename.equals("-")) {
+                AST program = Interpreter.loadProgram(CompactLexer.mapFile(Paths.get(filename)), cache);
+                interpreter.interpret(interpreter.resolve(program));
+                return;
+            }
+            if (filename.equals("-") && System.console() != null) {
+                interpreter.setOutput(BufferedOutputSink.lineFlushing(System.out));
+            }
+            try (Reader reader = Utils.openReader(filename)) {
+                interpreter.interpret(reader);
+            }
+        } finally {
+            interpreter.getOutput().flush();
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,7 @@
+package batch;
+
+public class BatchException extends RuntimeException {
+    public BatchException(String message) {
+        super(message);
+    }
+}
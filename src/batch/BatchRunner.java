@@ -0,0 +1,160 @@
+package batch;
+
+import cache.ProgramCache;
+import interpreter.Engine;
+import interpreter.Interpreter;
+import interpreter.Utils;
+import lexer.CompactLexer;
+import output.MemoryOutputSink;
+import parser.AST.AST;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BatchRunner {
+    private static final String EXTENSION = ".wz";
+
+    private final ExecutorService executor;
+    private final Engine engine;
+    private final ProgramCache cache;
+
+    public BatchRunner(ExecutorService executor, Engine engine, ProgramCache cache) {
+        this.executor = executor;
+        this.engine = engine;
+        this.cache = cache;
+    }
+
+    // Directories contribute every .wz file below them, sorted by path so runs are reproducible
+    public static List<Path> collectScripts(List<Path> paths) throws IOException {
+        List<Path> scripts = new ArrayList<>();
+        for (Path path : paths) {
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.walk(path)) {
+                    scripts.addAll(files
+                            .filter(file -> Files.isRegularFile(file) && file.toString().endsWith(EXTENSION))
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else if (Files.isRegularFile(path)) {
+                scripts.add(path);
+            } else {
+                throw new BatchException("No such script or directory: " + path);
+            }
+        }
+        return scripts;
+    }
+
+    // Results are returned in the order the scripts were given, whatever order they finish in
+    public List<ScriptResult> run(List<Path> scripts) {
+        List<Future<ScriptResult>> futures = new ArrayList<>();
+        for (Path script : scripts) {
+            futures.add(executor.submit(() -> runScript(script)));
+        }
+        List<ScriptResult> results = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                results.add(new ScriptResult(scripts.get(i), "", null, e.getCause(), 0));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BatchException("Interrupted while waiting for " + scripts.get(i));
+            }
+        }
+        return results;
+    }
+
+    private ScriptResult runScript(Path script) {
+        MemoryOutputSink output = new MemoryOutputSink();
+        Object value = null;
+        Throwable error = null;
+        long start = System.nanoTime();
+        try {
+            Interpreter interpreter = new Interpreter(engine);
+            interpreter.setOutput(output);
+            AST program = Interpreter.loadProgram(CompactLexer.mapFile(script), cache);
+            value = interpreter.interpret(interpreter.resolve(program));
+        } catch (IOException | RuntimeException | StackOverflowError e) {
+            error = e;
+        }
+        long elapsed = System.nanoTime() - start;
+        return new ScriptResult(script, output.getText(), value, error, elapsed);
+    }
+
+    public static void report(List<ScriptResult> results, long wallNanos, PrintStream out) {
+        int failed = 0;
+        for (ScriptResult result : results) {
+            out.printf("=== %s (%.2f ms)%n", result.getScript(), result.getElapsedNanos() / 1e6);
+            out.print(result.getOutput());
+            if (result.isFailed()) {
+                failed++;
+                out.println("FAILED: " + result.getError());
+            }
+        }
+        out.printf("%d scripts, %d failed in %.2f ms%n", results.size(), failed, wallNanos / 1e6);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Engine engine = Engine.TREE_WALKER;
+        String executorKind = "fixed";
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = java.lang.Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--executor") && i + 1 < args.length) {
+                executorKind = args[++i];
+            } else if (args[i].equals("--vm")) {
+                engine = Engine.VM;
+            } else if (args[i].equals("--jit")) {
+                engine = Engine.JIT;
+            } else {
+                paths.add(Paths.get(args[i]));
+            }
+        }
+        if (paths.isEmpty()) {
+            System.out.println("Usage: java batch.BatchRunner [--threads n] [--executor fixed | forkjoin] [--vm | --jit] <directory | file>...");
+            return;
+        }
+
+        ExecutorService pool = createExecutor(executorKind, threads);
+        try {
+            List<Path> scripts = collectScripts(paths);
+            long start = System.nanoTime();
+            List<ScriptResult> results = new BatchRunner(pool, engine, ProgramCache.fromSystemProperties()).run(scripts);
+            report(results, System.nanoTime() - start, System.out);
+            if (results.stream().anyMatch(ScriptResult::isFailed)) {
+                System.exit(1);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Fixed pool workers get the interpreter's large stack for deep recursion. Fork-join workers cannot,
+    // but steal work from each other, which keeps them busy when script run times vary widely.
+    private static ExecutorService createExecutor(String kind, int threads) {
+        if (kind.equals("fixed")) {
+            AtomicInteger workers = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads,
+                    task -> Utils.largeStackThread(task, "openwz-batch-" + workers.incrementAndGet()));
+        }
+        if (kind.equals("forkjoin")) {
+            return new ForkJoinPool(threads);
+        }
+        throw new BatchException("Unknown executor: " + kind + " (expected fixed or forkjoin)");
+    }
+}
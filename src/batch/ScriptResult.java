@@ -0,0 +1,43 @@
+package batch;
+
+import java.nio.file.Path;
+
+public class ScriptResult {
+    private final Path script;
+    private final String output;
+    private final Object value;
+    private final Throwable error;
+    private final long elapsedNanos;
+
+    public ScriptResult(Path script, String output, Object value, Throwable error, long elapsedNanos) {
+        this.script = script;
+        this.output = output;
+        this.value = value;
+        this.error = error;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Path getScript() {
+        return script;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,377 @@
+package cache;
+
+import lexer.TokenType;
+import parser.AST.AST;
+import parser.AST.Array;
+import parser.AST.ArrayAssignment;
+import parser.AST.ArrayVar;
+import parser.AST.Assignment;
+import parser.AST.BinOp;
+import parser.AST.Call;
+import parser.AST.Boolean;
+import parser.AST.Compound;
+import parser.AST.For;
+import parser.AST.FunctionNode;
+import parser.AST.IfElse;
+import parser.AST.Integer;
+import parser.AST.LocalAssignment;
+import parser.AST.LocalVar;
+import parser.AST.MapNode;
+import parser.AST.MethodCall;
+import parser.AST.Print;
+import parser.AST.Return;
+import parser.AST.StringNode;
+import parser.AST.TailCall;
+import parser.AST.UnaryOp;
+import parser.AST.Var;
+import parser.AST.While;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AstSerializer {
+    // Bump whenever a tag, a node layout or the TokenType order changes
+    public static final int FORMAT_VERSION = 7;
+
+    private static final int INTEGER = 1;
+    private static final int BOOLEAN = 2;
+    private static final int STRING = 3;
+    private static final int VAR = 4;
+    private static final int ASSIGNMENT = 5;
+    private static final int PRINT = 6;
+    private static final int IF_ELSE = 7;
+    private static final int COMPOUND = 8;
+    private static final int BIN_OP = 9;
+    private static final int UNARY_OP = 10;
+    private static final int ARRAY = 11;
+    private static final int ARRAY_VAR = 12;
+    private static final int ARRAY_ASSIGNMENT = 13;
+    private static final int METHOD_CALL = 14;
+    private static final int MAP = 15;
+    private static final int WHILE = 16;
+    private static final int FOR = 17;
+    private static final int FUNCTION = 18;
+    private static final int CALL = 19;
+    private static final int TAIL_CALL = 20;
+    private static final int RETURN = 21;
+    private static final int LOCAL_VAR = 22;
+    private static final int LOCAL_ASSIGNMENT = 23;
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    private AstSerializer() {
+    }
+
+    public static void write(AST node, DataOutputStream out) throws IOException {
+        new Writer(out).write(node);
+    }
+
+    public static AST read(DataInputStream in) throws IOException {
+        return new Reader(in).read();
+    }
+
+    private static class Writer {
+        private final DataOutputStream out;
+        // Names repeat heavily, so each distinct string is written once and referenced by index afterwards
+        private final Map<String, java.lang.Integer> strings = new HashMap<>();
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void write(AST node) throws IOException {
+            writeNode(node);
+            writeVarInt(node.getLine());
+            writeVarInt(node.getColumn());
+        }
+
+        private void writeNode(AST node) throws IOException {
+            if (node instanceof Integer) {
+                out.writeByte(INTEGER);
+                writeVarInt(zigZag(((Integer) node).getValue()));
+            } else if (node instanceof Boolean) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean(((Boolean) node).getValue());
+            } else if (node instanceof StringNode) {
+                out.writeByte(STRING);
+                writeString(((StringNode) node).getValue());
+            } else if (node instanceof Var) {
+                out.writeByte(VAR);
+                writeString(((Var) node).getName());
+            } else if (node instanceof Assignment) {
+                out.writeByte(ASSIGNMENT);
+                writeString(((Assignment) node).getVarName());
+                write(((Assignment) node).getExpr());
+            } else if (node instanceof Print) {
+                out.writeByte(PRINT);
+                write(((Print) node).getExpr());
+            } else if (node instanceof IfElse) {
+                IfElse ifElse = (IfElse) node;
+                out.writeByte(IF_ELSE);
+                write(ifElse.getCondition());
+                write(ifElse.getIfBody());
+                write(ifElse.getElseBody());
+            } else if (node instanceof Compound) {
+                out.writeByte(COMPOUND);
+                writeList(node.getChildren());
+            } else if (node instanceof BinOp) {
+                BinOp binOp = (BinOp) node;
+                out.writeByte(BIN_OP);
+                out.writeByte(binOp.getOp().ordinal());
+                write(binOp.getLeft());
+                write(binOp.getRight());
+            } else if (node instanceof UnaryOp) {
+                UnaryOp unaryOp = (UnaryOp) node;
+                out.writeByte(UNARY_OP);
+                out.writeByte(unaryOp.getOp().ordinal());
+                write(unaryOp.getExpr());
+            } else if (node instanceof Array) {
+                out.writeByte(ARRAY);
+                writeList(((Array) node).getElements());
+            } else if (node instanceof ArrayVar) {
+                out.writeByte(ARRAY_VAR);
+                write(((ArrayVar) node).getArray());
+                write(((ArrayVar) node).getIndex());
+            } else if (node instanceof ArrayAssignment) {
+                ArrayAssignment assignment = (ArrayAssignment) node;
+                out.writeByte(ARRAY_ASSIGNMENT);
+                write(assignment.getArray());
+                write(assignment.getIndex());
+                write(assignment.getExpr());
+            } else if (node instanceof MapNode) {
+                out.writeByte(MAP);
+                writeList(((MapNode) node).getKeys());
+                writeList(((MapNode) node).getValues());
+            } else if (node instanceof While) {
+                out.writeByte(WHILE);
+                write(((While) node).getCondition());
+                write(((While) node).getBody());
+            } else if (node instanceof For) {
+                For loop = (For) node;
+                out.writeByte(FOR);
+                write(loop.getInit());
+                write(loop.getCondition());
+                write(loop.getUpdate());
+                write(loop.getBody());
+            } else if (node instanceof FunctionNode) {
+                FunctionNode function = (FunctionNode) node;
+                out.writeByte(FUNCTION);
+                writeString(function.getName());
+                writeVarInt(function.getArity());
+                writeVarInt(function.getLocalNames().size());
+                for (String local : function.getLocalNames()) {
+                    writeString(local);
+                }
+                write(function.getBody());
+            } else if (node instanceof Call) {
+                Call call = (Call) node;
+                out.writeByte(node instanceof TailCall ? TAIL_CALL : CALL);
+                write(call.getCallee());
+                writeList(call.getArgs());
+            } else if (node instanceof Return) {
+                out.writeByte(RETURN);
+                write(((Return) node).getExpr());
+            } else if (node instanceof LocalVar) {
+                out.writeByte(LOCAL_VAR);
+                writeString(((LocalVar) node).getName());
+                writeVarInt(((LocalVar) node).getSlot());
+            } else if (node instanceof LocalAssignment) {
+                LocalAssignment assignment = (LocalAssignment) node;
+                out.writeByte(LOCAL_ASSIGNMENT);
+                writeString(assignment.getVarName());
+                writeVarInt(assignment.getSlot());
+                write(assignment.getExpr());
+            } else if (node instanceof MethodCall) {
+                MethodCall call = (MethodCall) node;
+                out.writeByte(METHOD_CALL);
+                write(call.getTarget());
+                writeString(call.getName());
+                writeList(call.getArgs());
+            } else {
+                throw new CacheException("Cannot serialize node: " + node.getClass().getSimpleName());
+            }
+        }
+
+        private void writeList(List<AST> nodes) throws IOException {
+            writeVarInt(nodes.size());
+            for (AST node : nodes) {
+                write(node);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            java.lang.Integer index = strings.get(value);
+            if (index != null) {
+                writeVarInt(index + 1);
+                return;
+            }
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(0);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        private static int zigZag(int value) {
+            return (value << 1) ^ (value >> 31);
+        }
+    }
+
+    private static class Reader {
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        AST read() throws IOException {
+            AST node = readNode();
+            return node.setPosition(readVarInt(), readVarInt());
+        }
+
+        private AST readNode() throws IOException {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case INTEGER:
+                    int zigZag = readVarInt();
+                    return new Integer((zigZag >>> 1) ^ -(zigZag & 1));
+                case BOOLEAN:
+                    return new Boolean(in.readBoolean());
+                case STRING:
+                    return new StringNode(readString());
+                case VAR:
+                    return new Var(readString());
+                case ASSIGNMENT:
+                    return new Assignment(readString(), read());
+                case PRINT:
+                    return new Print(read());
+                case IF_ELSE:
+                    return new IfElse(read(), read(), read());
+                case COMPOUND:
+                    Compound compound = new Compound();
+                    for (AST child : readList()) {
+                        compound.addChild(child);
+                    }
+                    return compound;
+                case BIN_OP:
+                    return new BinOp(readTokenType(), read(), read());
+                case UNARY_OP:
+                    return new UnaryOp(readTokenType(), read());
+                case ARRAY:
+                    return new Array(readList());
+                case ARRAY_VAR:
+                    return new ArrayVar(read(), read());
+                case ARRAY_ASSIGNMENT:
+                    return new ArrayAssignment(read(), read(), read());
+                case METHOD_CALL:
+                    return new MethodCall(read(), readString(), readList());
+                case WHILE:
+                    return new While(read(), read());
+                case FOR:
+                    return new For(read(), read(), read(), read());
+                case FUNCTION:
+                    return readFunction();
+                case CALL:
+                    return new Call(read(), readList());
+                case TAIL_CALL:
+                    return new TailCall(read(), readList());
+                case RETURN:
+                    return new Return(read());
+                case LOCAL_VAR:
+                    return new LocalVar(readString(), readVarInt());
+                case LOCAL_ASSIGNMENT:
+                    return new LocalAssignment(readString(), readVarInt(), read());
+                case MAP:
+                    List<AST> keys = readList();
+                    List<AST> values = readList();
+                    if (keys.size() != values.size()) {
+                        throw new CacheException("Map literal with " + keys.size() + " keys and " + values.size() + " values");
+                    }
+                    return new MapNode(keys, values);
+                default:
+                    throw new CacheException("Unknown node tag: " + tag);
+            }
+        }
+
+        private AST readFunction() throws IOException {
+            String name = readString();
+            int arity = readVarInt();
+            int count = readLength();
+            if (arity > count) {
+                throw new CacheException("Function " + name + " has more parameters than locals");
+            }
+            List<String> locals = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                locals.add(readString());
+            }
+            return new FunctionNode(name, locals, arity, read());
+        }
+
+        private List<AST> readList() throws IOException {
+            int count = readLength();
+            List<AST> nodes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                nodes.add(read());
+            }
+            return nodes;
+        }
+
+        private TokenType readTokenType() throws IOException {
+            int ordinal = in.readUnsignedByte();
+            if (ordinal >= TOKEN_TYPES.length) {
+                throw new CacheException("Unknown token type: " + ordinal);
+            }
+            return TOKEN_TYPES[ordinal];
+        }
+
+        private String readString() throws IOException {
+            int reference = readVarInt();
+            if (reference != 0) {
+                if (reference > strings.size()) {
+                    throw new CacheException("Invalid string reference: " + reference);
+                }
+                return strings.get(reference - 1);
+            }
+            byte[] bytes = new byte[readLength()];
+            in.readFully(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(value);
+            return value;
+        }
+
+        private int readLength() throws IOException {
+            int length = readVarInt();
+            if (length < 0 || length > in.available()) {
+                throw new CacheException("Invalid length: " + length);
+            }
+            return length;
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new CacheException("Malformed varint");
+        }
+    }
+}
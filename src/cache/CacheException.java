@@ -0,0 +1,7 @@
+package cache;
+
+public class CacheException extends RuntimeException {
+    public CacheException(String message) {
+        super(message);
+    }
+}
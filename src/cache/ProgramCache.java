@@ -0,0 +1,143 @@
+package cache;
+
+import optimizer.Optimizer;
+import parser.AST.AST;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+public class ProgramCache {
+    private static final int MAGIC = 0x4F575A43; // "OWZC"
+    // Part of every key, so entries written by another build, format or optimizer are never loaded
+    private static final String VERSION_STAMP = "openwz-" + buildVersion() + "-ast-" + AstSerializer.FORMAT_VERSION
+            + "-optimizer-" + Optimizer.VERSION;
+    private static final String EXTENSION = ".wzc";
+
+    private final Path directory;
+
+    public ProgramCache(Path directory) {
+        this.directory = directory;
+    }
+
+    // Returns null unless caching is switched on with -Dopenwz.cache=true or a -Dopenwz.cache.dir
+    public static ProgramCache fromSystemProperties() {
+        String enabled = System.getProperty("openwz.cache");
+        String directory = System.getProperty("openwz.cache.dir");
+        if (enabled != null ? !enabled.equals("true") : directory == null) {
+            return null;
+        }
+        if (directory == null) {
+            directory = Paths.get(System.getProperty("java.io.tmpdir"), "openwz-cache").toString();
+        }
+        return new ProgramCache(Paths.get(directory));
+    }
+
+    // The jar's Implementation-Version; classes run from a build directory share one stamp
+    private static String buildVersion() {
+        String version = ProgramCache.class.getPackage().getImplementationVersion();
+        return version != null ? version : "dev";
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public static byte[] key(ByteBuffer source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(VERSION_STAMP.getBytes(StandardCharsets.UTF_8));
+            digest.update(source.duplicate());
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Returns null on a miss; stale or corrupt entries are deleted and reported as misses
+    public AST load(byte[] key) {
+        Path file = entry(key);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readInt() != AstSerializer.FORMAT_VERSION) {
+                throw new CacheException("Stale cache entry");
+            }
+            byte[] storedKey = new byte[key.length];
+            in.readFully(storedKey);
+            if (!Arrays.equals(storedKey, key)) {
+                throw new CacheException("Cache key mismatch");
+            }
+            long checksum = in.readInt() & 0xFFFFFFFFL;
+            byte[] payload = in.readAllBytes();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if (crc.getValue() != checksum) {
+                throw new CacheException("Cache checksum mismatch");
+            }
+            DataInputStream payloadIn = new DataInputStream(new ByteArrayInputStream(payload));
+            AST program = AstSerializer.read(payloadIn);
+            if (payloadIn.available() != 0) {
+                throw new CacheException("Trailing bytes in cache entry");
+            }
+            return program;
+        } catch (CacheException | EOFException e) {
+            invalidate(file);
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void store(byte[] key, AST program) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        AstSerializer.write(program, new DataOutputStream(payload));
+        CRC32 crc = new CRC32();
+        crc.update(payload.toByteArray());
+
+        Files.createDirectories(directory);
+        // Written to a temporary file and moved into place, so concurrent readers never see a partial entry
+        Path temp = Files.createTempFile(directory, "entry", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+                out.writeInt(MAGIC);
+                out.writeInt(AstSerializer.FORMAT_VERSION);
+                out.write(key);
+                out.writeInt((int) crc.getValue());
+                payload.writeTo(out);
+            }
+            Files.move(temp, entry(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void invalidate(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private Path entry(byte[] key) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : key) {
+            name.append(String.format("%02x", b));
+        }
+        return directory.resolve(name.append(EXTENSION).toString());
+    }
+}
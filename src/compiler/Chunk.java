@@ -0,0 +1,81 @@
+package compiler;
+
+// Registers are numbered in four groups: variables looked up by name, the environment's frame slots up to
+// the highest one the code uses, constants, and temporaries
+public class Chunk {
+    private final int[] code;
+    private final Object[] constants;
+    private final String[] slotNames;
+    private final String[] frameSlotNames;
+    private final int registerCount;
+
+    public Chunk(int[] code, Object[] constants, String[] slotNames, String[] frameSlotNames, int registerCount) {
+        this.code = code;
+        this.constants = constants;
+        this.slotNames = slotNames;
+        this.frameSlotNames = frameSlotNames;
+        this.registerCount = registerCount;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public Object[] getConstants() {
+        return constants;
+    }
+
+    public String[] getSlotNames() {
+        return slotNames;
+    }
+
+    // Null for frame slots below the highest used one that the code does not use
+    public String[] getFrameSlotNames() {
+        return frameSlotNames;
+    }
+
+    public int getFrameBase() {
+        return slotNames.length;
+    }
+
+    public int getConstantBase() {
+        return slotNames.length + frameSlotNames.length;
+    }
+
+    public int getTemporaryBase() {
+        return getConstantBase() + constants.length;
+    }
+
+    public int getRegisterCount() {
+        return registerCount;
+    }
+
+    public String registerName(int register) {
+        if (register < getFrameBase()) {
+            return slotNames[register];
+        } else if (register < getConstantBase()) {
+            return frameSlotNames[register - getFrameBase()];
+        } else if (register < getTemporaryBase()) {
+            return "#" + constants[register - getConstantBase()];
+        }
+        return "t" + (register - getTemporaryBase());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc];
+            int operands = OpCode.operandCount(opcode);
+            sb.append(String.format("%04d %s", pc, OpCode.name(opcode)));
+            for (int i = 1; i <= operands; i++) {
+                boolean target = i == operands && OpCode.isJump(opcode);
+                sb.append(' ').append(target ? String.valueOf(code[pc + i]) : registerName(code[pc + i]));
+            }
+            sb.append('\n');
+            pc += 1 + operands;
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,345 @@
+package compiler;
+
+import lexer.TokenType;
+import parser.AST.AST;
+import parser.AST.Assignment;
+import parser.AST.BinOp;
+import parser.AST.Compound;
+import parser.AST.For;
+import parser.AST.IfElse;
+import parser.AST.MemoNode;
+import parser.AST.Print;
+import parser.AST.SlotAssignment;
+import parser.AST.SlotVar;
+import parser.AST.StringNode;
+import parser.AST.UnaryOp;
+import parser.AST.Var;
+import parser.AST.While;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Compiles to register code. Variables and literals are read from their own registers, and each operator
+// writes a temporary, or the assigned variable directly when it is the value of an assignment.
+public class Compiler {
+    // Registers are numbered per group while compiling and renumbered once the size of each group is known
+    private static final int NAMED = 1 << 24;
+    private static final int FRAME = 2 << 24;
+    private static final int CONSTANT = 3 << 24;
+    private static final int TEMPORARY = 4 << 24;
+    private static final int INDEX_MASK = (1 << 24) - 1;
+
+    private int[] code = new int[64];
+    private int size;
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<Object, java.lang.Integer> constantIndexes = new HashMap<>();
+    private final List<String> slotNames = new ArrayList<>();
+    private final Map<String, java.lang.Integer> slotIndexes = new HashMap<>();
+    private String[] frameSlotNames = new String[0];
+    private int temporaries;
+    private int maxTemporaries;
+    // Variables assigned on every path to the code being compiled
+    private Set<java.lang.Integer> assigned = new HashSet<>();
+
+    public static Chunk compile(AST program) {
+        Compiler compiler = new Compiler();
+        int result = compiler.compileExpr(program, -1);
+        compiler.emit(OpCode.RETURN, result);
+        return compiler.toChunk();
+    }
+
+    private Chunk toChunk() {
+        int[] bases = new int[5];
+        bases[NAMED >>> 24] = 0;
+        bases[FRAME >>> 24] = slotNames.size();
+        bases[CONSTANT >>> 24] = slotNames.size() + frameSlotNames.length;
+        bases[TEMPORARY >>> 24] = bases[CONSTANT >>> 24] + constants.size();
+        int pc = 0;
+        while (pc < size) {
+            int opcode = code[pc];
+            int registers = OpCode.operandCount(opcode) - (OpCode.isJump(opcode) ? 1 : 0);
+            for (int i = 1; i <= registers; i++) {
+                code[pc + i] = bases[code[pc + i] >>> 24] + (code[pc + i] & INDEX_MASK);
+            }
+            pc += 1 + OpCode.operandCount(opcode);
+        }
+        return new Chunk(Arrays.copyOf(code, size), constants.toArray(), slotNames.toArray(new String[0]), frameSlotNames,
+                bases[TEMPORARY >>> 24] + maxTemporaries);
+    }
+
+    // Returns the register holding the value of node. Values that are not already in a register are
+    // written to target, or to a new temporary when target is -1.
+    private int compileExpr(AST node, int target) {
+        if (node instanceof parser.AST.Integer) {
+            return move(constant(((parser.AST.Integer) node).getValue()), target);
+        } else if (node instanceof parser.AST.Boolean) {
+            return move(constant(((parser.AST.Boolean) node).getValue()), target);
+        } else if (node instanceof StringNode) {
+            return move(constant(((StringNode) node).getValue()), target);
+        } else if (node instanceof Var) {
+            return move(slot(((Var) node).getName()), target);
+        } else if (node instanceof SlotVar) {
+            return move(frameSlot(((SlotVar) node).getSlot(), ((SlotVar) node).getName()), target);
+        } else if (node instanceof SlotAssignment) {
+            SlotAssignment assignment = (SlotAssignment) node;
+            return assign(frameSlot(assignment.getSlot(), assignment.getVarName()), assignment.getExpr(), target);
+        } else if (node instanceof Assignment) {
+            Assignment assignment = (Assignment) node;
+            return assign(slot(assignment.getVarName()), assignment.getExpr(), target);
+        } else if (node instanceof BinOp) {
+            BinOp binOp = (BinOp) node;
+            int mark = temporaries;
+            int left = compileExpr(binOp.getLeft(), -1);
+            // A variable is read when the operator runs, after the right operand. Copy it first when the right
+            // operand may assign it, or may fail or print before an undefined variable would be reported.
+            if (isVariable(left) && !isLeaf(binOp.getRight()) && (!assigned.contains(left) || assigns(binOp.getRight()))) {
+                left = move(left, temporary());
+            }
+            int right = compileExpr(binOp.getRight(), -1);
+            temporaries = mark;
+            int result = target >= 0 ? target : temporary();
+            emit(binaryOpCode(binOp.getOp()), result, left, right);
+            return result;
+        } else if (node instanceof UnaryOp) {
+            UnaryOp unaryOp = (UnaryOp) node;
+            int mark = temporaries;
+            int operand = compileExpr(unaryOp.getExpr(), -1);
+            temporaries = mark;
+            int result = target >= 0 ? target : temporary();
+            emit(unaryOpCode(unaryOp.getOp()), result, operand);
+            return result;
+        } else if (node instanceof MemoNode) {
+            // Compiled code evaluates the expression directly
+            return compileExpr(((MemoNode) node).getExpr(), target);
+        } else if (node instanceof Print) {
+            int mark = temporaries;
+            int value = compileExpr(((Print) node).getExpr(), -1);
+            temporaries = mark;
+            int result = target >= 0 ? target : temporary();
+            emit(OpCode.PRINT, result, value);
+            return result;
+        } else if (node instanceof IfElse) {
+            IfElse ifElse = (IfElse) node;
+            int result = target >= 0 ? target : temporary();
+            compileIfElse(ifElse, () -> compileExpr(ifElse.getIfBody(), result), () -> compileExpr(ifElse.getElseBody(), result));
+            return result;
+        } else if (node instanceof While || node instanceof For) {
+            compileEffect(node);
+            return move(constant(null), target);
+        } else if (node instanceof Compound) {
+            List<AST> children = node.getChildren();
+            if (children.isEmpty()) {
+                return move(constant(null), target);
+            }
+            for (int i = 0; i < children.size() - 1; i++) {
+                compileEffect(children.get(i));
+            }
+            return compileExpr(children.get(children.size() - 1), target);
+        }
+        throw new CompilerException("Cannot compile node: " + node.getClass().getSimpleName());
+    }
+
+    // Compiles node for its side effects and errors only
+    private void compileEffect(AST node) {
+        int mark = temporaries;
+        if (node instanceof IfElse) {
+            IfElse ifElse = (IfElse) node;
+            compileIfElse(ifElse, () -> compileEffect(ifElse.getIfBody()), () -> compileEffect(ifElse.getElseBody()));
+        } else if (node instanceof While) {
+            While loop = (While) node;
+            compileLoop(loop.getCondition(), loop.getBody(), null);
+        } else if (node instanceof For) {
+            For loop = (For) node;
+            compileEffect(loop.getInit());
+            compileLoop(loop.getCondition(), loop.getBody(), loop.getUpdate());
+        } else if (node instanceof Compound) {
+            for (AST child : node.getChildren()) {
+                compileEffect(child);
+            }
+        } else if (node instanceof Var || node instanceof SlotVar) {
+            // Copied so that an undefined variable is still reported
+            compileExpr(node, temporary());
+        } else if (!isLeaf(node)) {
+            compileExpr(node, -1);
+        }
+        temporaries = mark;
+    }
+
+    private void compileIfElse(IfElse ifElse, Runnable ifBody, Runnable elseBody) {
+        int mark = temporaries;
+        int condition = compileExpr(ifElse.getCondition(), -1);
+        temporaries = mark;
+        int elseJump = emitJump(OpCode.JUMP_IF_FALSE, condition);
+        Set<java.lang.Integer> before = new HashSet<>(assigned);
+        ifBody.run();
+        Set<java.lang.Integer> afterIf = assigned;
+        assigned = before;
+        int endJump = emitJump(OpCode.JUMP);
+        patchJump(elseJump);
+        elseBody.run();
+        assigned.retainAll(afterIf);
+        patchJump(endJump);
+    }
+
+    // The condition is checked at the bottom, so an iteration runs one jump
+    private void compileLoop(AST condition, AST body, AST update) {
+        int conditionJump = emitJump(OpCode.JUMP);
+        int start = size;
+        // The body may not run, and runs after the condition, which is conservatively assumed to assign nothing
+        Set<java.lang.Integer> before = new HashSet<>(assigned);
+        compileEffect(body);
+        if (update != null) {
+            compileEffect(update);
+        }
+        assigned = before;
+        patchJump(conditionJump);
+        int mark = temporaries;
+        int result = compileExpr(condition, -1);
+        temporaries = mark;
+        emit(OpCode.JUMP_IF_TRUE, result, start);
+    }
+
+    private int assign(int variable, AST expr, int target) {
+        compileExpr(expr, variable);
+        assigned.add(variable);
+        return move(variable, target);
+    }
+
+    private int move(int source, int target) {
+        if (target < 0) {
+            return source;
+        }
+        emit(OpCode.MOVE, target, source);
+        return target;
+    }
+
+    private int binaryOpCode(TokenType op) {
+        switch (op) {
+            case PLUS:
+                return OpCode.ADD;
+            case MINUS:
+                return OpCode.SUB;
+            case MULT:
+                return OpCode.MUL;
+            case DIV:
+                return OpCode.DIV;
+            case EQ:
+                return OpCode.EQ;
+            case NEQ:
+                return OpCode.NEQ;
+            case LT:
+                return OpCode.LT;
+            case GT:
+                return OpCode.GT;
+            case LTE:
+                return OpCode.LTE;
+            case GTE:
+                return OpCode.GTE;
+            case AND:
+                return OpCode.AND;
+            case OR:
+                return OpCode.OR;
+            default:
+                throw new CompilerException("Unknown operator: " + op);
+        }
+    }
+
+    private int unaryOpCode(TokenType op) {
+        switch (op) {
+            case MINUS:
+                return OpCode.NEG;
+            case NOT:
+                return OpCode.NOT;
+            default:
+                throw new CompilerException("Invalid unary operator: " + op);
+        }
+    }
+
+    private int slot(String name) {
+        java.lang.Integer index = slotIndexes.get(name);
+        if (index == null) {
+            index = slotNames.size();
+            slotNames.add(name);
+            slotIndexes.put(name, index);
+        }
+        return NAMED | index;
+    }
+
+    private int frameSlot(int slot, String name) {
+        if (slot >= frameSlotNames.length) {
+            frameSlotNames = Arrays.copyOf(frameSlotNames, slot + 1);
+        }
+        frameSlotNames[slot] = name;
+        return FRAME | slot;
+    }
+
+    private int constant(Object value) {
+        java.lang.Integer index = constantIndexes.get(value);
+        if (index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndexes.put(value, index);
+        }
+        return CONSTANT | index;
+    }
+
+    private int temporary() {
+        maxTemporaries = Math.max(maxTemporaries, temporaries + 1);
+        return TEMPORARY | temporaries++;
+    }
+
+    private static boolean isVariable(int register) {
+        return (register & ~INDEX_MASK) == NAMED || (register & ~INDEX_MASK) == FRAME;
+    }
+
+    private static boolean isLeaf(AST node) {
+        return node instanceof parser.AST.Integer || node instanceof parser.AST.Boolean || node instanceof StringNode
+                || node instanceof Var || node instanceof SlotVar;
+    }
+
+    private static boolean assigns(AST node) {
+        if (node instanceof Assignment || node instanceof SlotAssignment) {
+            return true;
+        }
+        for (AST child : node.getChildren()) {
+            if (assigns(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Emits a jump with the target left to patchJump
+    private int emitJump(int opcode, int... operands) {
+        ensureCapacity(2 + operands.length);
+        code[size++] = opcode;
+        for (int operand : operands) {
+            code[size++] = operand;
+        }
+        code[size++] = -1;
+        return size - 1;
+    }
+
+    private void patchJump(int operandPosition) {
+        code[operandPosition] = size;
+    }
+
+    private void emit(int opcode, int... operands) {
+        ensureCapacity(1 + operands.length);
+        code[size++] = opcode;
+        for (int operand : operands) {
+            code[size++] = operand;
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package compiler;
+
+public class CompilerException extends RuntimeException {
+    public CompilerException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,63 @@
+package compiler;
+
+// Operands are register numbers unless noted otherwise. See Chunk for the register layout.
+public final class OpCode {
+    public static final int MOVE = 0;           // MOVE <target> <source>
+
+    // Arithmetic and comparison: <target> <left> <right>
+    public static final int ADD = 1;
+    public static final int SUB = 2;
+    public static final int MUL = 3;
+    public static final int DIV = 4;
+    public static final int EQ = 5;
+    public static final int NEQ = 6;
+    public static final int LT = 7;
+    public static final int GT = 8;
+    public static final int LTE = 9;
+    public static final int GTE = 10;
+    public static final int AND = 11;
+    public static final int OR = 12;
+    public static final int NEG = 13;           // NEG <target> <operand>
+    public static final int NOT = 14;           // NOT <target> <operand>
+
+    // Control flow, the last operand is a code position
+    public static final int JUMP = 15;          // JUMP <pc>
+    public static final int JUMP_IF_FALSE = 16; // JUMP_IF_FALSE <condition> <pc>
+    public static final int JUMP_IF_TRUE = 17;  // JUMP_IF_TRUE <condition> <pc>
+
+    public static final int PRINT = 18;         // PRINT <target> <value>, sets target to null
+    public static final int RETURN = 19;        // RETURN <value>
+
+    private static final String[] NAMES = {
+            "MOVE", "ADD", "SUB", "MUL", "DIV", "EQ", "NEQ", "LT", "GT", "LTE", "GTE", "AND", "OR", "NEG", "NOT",
+            "JUMP", "JUMP_IF_FALSE", "JUMP_IF_TRUE", "PRINT", "RETURN"
+    };
+
+    private OpCode() {
+    }
+
+    public static String name(int opcode) {
+        return NAMES[opcode];
+    }
+
+    public static int operandCount(int opcode) {
+        switch (opcode) {
+            case JUMP:
+            case RETURN:
+                return 1;
+            case MOVE:
+            case NEG:
+            case NOT:
+            case JUMP_IF_FALSE:
+            case JUMP_IF_TRUE:
+            case PRINT:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    public static boolean isJump(int opcode) {
+        return opcode == JUMP || opcode == JUMP_IF_FALSE || opcode == JUMP_IF_TRUE;
+    }
+}
@@ -0,0 +1,241 @@
+package daemon;
+
+import cache.ProgramCache;
+import interpreter.Engine;
+import interpreter.Interpreter;
+import interpreter.Utils;
+import lexer.CompactLexer;
+import output.BufferedOutputSink;
+import parser.AST.AST;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs scripts for DaemonClient in one long-lived JVM, so runs skip JVM startup and reuse code the JVM
+// has already compiled. Each connection is one run with its own Interpreter and Environment, on a worker
+// thread with the large script stack. Output is streamed back as it is flushed, followed by the exit
+// status java Main would have returned.
+public class Daemon {
+    // Largest request frame, a script path or a script read from stdin, that the daemon accepts
+    static final int MAX_REQUEST_SIZE = java.lang.Integer.getInteger("openwz.daemon.maxRequestSize", 64 << 20);
+
+    private final Path socketPath;
+    private final ExecutorService executor;
+    private final Engine engine;
+    private final ProgramCache cache;
+    private ServerSocketChannel server;
+
+    public Daemon(Path socketPath, ExecutorService executor, Engine engine, ProgramCache cache) {
+        this.socketPath = socketPath;
+        this.executor = executor;
+        this.engine = engine;
+        this.cache = cache;
+    }
+
+    // Accepts connections until close() is called
+    public void serve() throws IOException {
+        if (Files.exists(socketPath, LinkOption.NOFOLLOW_LINKS)) {
+            if (Files.isRegularFile(socketPath, LinkOption.NOFOLLOW_LINKS)) {
+                throw new DaemonException("Not a socket: " + socketPath);
+            }
+            Protocol.checkOwner(socketPath);
+            if (isListening(socketPath)) {
+                throw new DaemonException("A daemon is already listening on " + socketPath);
+            }
+            // A socket file without a listener is left over from a daemon that did not shut down cleanly
+            Files.delete(socketPath);
+        }
+        synchronized (this) {
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            // Connections run scripts as this user, so other users may not connect
+            if (Files.getFileAttributeView(socketPath, PosixFileAttributeView.class) != null) {
+                Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+            }
+        }
+        try {
+            while (true) {
+                SocketChannel client = server.accept();
+                executor.execute(() -> handle(client));
+            }
+        } catch (ClosedChannelException e) {
+            // close() was called
+        } finally {
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    // Only a refused connection shows the socket is stale; other failures are passed on
+    private static boolean isListening(Path socketPath) throws IOException {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socketPath)).close();
+            return true;
+        } catch (ConnectException e) {
+            return false;
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (server != null) {
+            server.close();
+            Files.deleteIfExists(socketPath);
+        }
+    }
+
+    private void handle(SocketChannel channel) {
+        try (channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            byte kind = in.readByte();
+            byte[] request;
+            try {
+                request = Protocol.readPayload(in, MAX_REQUEST_SIZE);
+            } catch (DaemonException e) {
+                // The rest of the request is not read; the client gets the reason and a failed status
+                Protocol.write(out, Protocol.ERROR, (e.getMessage() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+                Protocol.writeExit(out, 1);
+                return;
+            }
+            int status = run(kind, new String(request, StandardCharsets.UTF_8), out);
+            Protocol.writeExit(out, status);
+        } catch (EOFException e) {
+            // Closed before a whole request arrived, as the probe in serve() does
+        } catch (IOException | UncheckedIOException e) {
+            // The client went away; its run has already stopped at the failed write
+            System.err.println("Daemon request failed: " + e.getMessage());
+        }
+    }
+
+    private int run(byte kind, String request, DataOutputStream out) throws IOException {
+        BufferedOutputSink output = new BufferedOutputSink(new OutputChannel(out),
+                BufferedOutputSink.DEFAULT_BUFFER_SIZE, BufferedOutputSink.DEFAULT_FLUSH_INTERVAL, false);
+        Interpreter interpreter = new Interpreter(engine);
+        interpreter.setOutput(output);
+        Throwable error = null;
+        try {
+            execute(interpreter, kind, request);
+        } catch (IOException | RuntimeException | StackOverflowError e) {
+            error = e;
+        } finally {
+            output.flush();
+        }
+        if (error == null) {
+            return 0;
+        }
+        // Reported the way the JVM reports an exception that escapes java Main
+        StringWriter trace = new StringWriter();
+        trace.write("Exception in thread \"main\" ");
+        error.printStackTrace(new PrintWriter(trace));
+        Protocol.write(out, Protocol.ERROR, trace.toString().getBytes(StandardCharsets.UTF_8));
+        return 1;
+    }
+
+    // Mirrors Main: files go through the program cache when it is on, other sources are streamed
+    private void execute(Interpreter interpreter, byte kind, String request) throws IOException {
+        if (kind == Protocol.FILE && cache != null) {
+            AST program = Interpreter.loadProgram(CompactLexer.mapFile(Paths.get(request)), cache);
+            interpreter.interpret(interpreter.resolve(program));
+            return;
+        }
+        if (kind != Protocol.FILE && kind != Protocol.SOURCE) {
+            throw new DaemonException("Unknown request kind: " + (char) kind);
+        }
+        try (Reader reader = kind == Protocol.FILE ? Utils.openReader(request) : new StringReader(request)) {
+            interpreter.interpret(reader);
+        }
+    }
+
+    // Wraps every block the output sink writes in an output frame
+    private static final class OutputChannel implements WritableByteChannel {
+        private final DataOutputStream out;
+
+        private OutputChannel(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            byte[] bytes = new byte[source.remaining()];
+            source.get(bytes);
+            Protocol.write(out, Protocol.OUTPUT, bytes);
+            return bytes.length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Engine engine = Engine.TREE_WALKER;
+        Path socketPath = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = java.lang.Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--socket") && i + 1 < args.length) {
+                socketPath = Paths.get(args[++i]);
+            } else if (args[i].equals("--vm")) {
+                engine = Engine.VM;
+            } else if (args[i].equals("--jit")) {
+                engine = Engine.JIT;
+            } else {
+                System.out.println("Usage: java daemon.Daemon [--socket path] [--threads n] [--vm | --jit]");
+                return;
+            }
+        }
+
+        if (socketPath == null) {
+            socketPath = Protocol.defaultSocketPath();
+        }
+        AtomicInteger workers = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads,
+                task -> Utils.largeStackThread(task, "openwz-daemon-" + workers.incrementAndGet()));
+        Daemon daemon = new Daemon(socketPath, pool, engine, ProgramCache.fromSystemProperties());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemon.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close daemon socket: " + e.getMessage());
+            }
+        }));
+        System.err.println("Listening on " + socketPath);
+        try {
+            daemon.serve();
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
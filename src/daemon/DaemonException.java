@@ -0,0 +1,7 @@
+package daemon;
+
+public class DaemonException extends RuntimeException {
+    public DaemonException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,110 @@
+package daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+
+// Every message is a frame: a kind byte, a 4-byte length and that many bytes. A connection carries one
+// request frame from the client, then output and error frames from the daemon, ended by an exit frame
+// whose payload is the exit status.
+final class Protocol {
+    static final byte FILE = 'F';
+    static final byte SOURCE = 'S';
+    static final byte OUTPUT = 'O';
+    static final byte ERROR = 'E';
+    static final byte EXIT = 'X';
+
+    private Protocol() {
+    }
+
+    // The default socket sits where only the current user can create files: $XDG_RUNTIME_DIR, or a directory
+    // named after the user under java.io.tmpdir that is created for the user alone
+    static Path defaultSocketPath() throws IOException {
+        String path = System.getProperty("openwz.daemon.socket");
+        if (path != null) {
+            return Paths.get(path);
+        }
+        String runtimeDir = System.getenv("XDG_RUNTIME_DIR");
+        if (runtimeDir != null && !runtimeDir.isEmpty()) {
+            return Paths.get(runtimeDir, "openwz.sock");
+        }
+        Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "openwz-" + System.getProperty("user.name"));
+        boolean posix = Files.getFileAttributeView(directory.getParent(), PosixFileAttributeView.class) != null;
+        if (Files.notExists(directory, LinkOption.NOFOLLOW_LINKS)) {
+            if (posix) {
+                Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectory(directory);
+            }
+        }
+        // Someone else may have created the directory first, to put their own socket in it
+        checkOwner(directory);
+        if (posix) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS);
+            if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS) || permissions.contains(PosixFilePermission.GROUP_WRITE)
+                    || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+                throw new DaemonException("Socket directory " + directory + " must be a directory only its owner can write to");
+            }
+        }
+        return directory.resolve("openwz.sock");
+    }
+
+    // A socket that belongs to another user could collect the scripts sent to it and fake their output
+    static void checkOwner(Path path) throws IOException {
+        UserPrincipal owner = Files.getOwner(path, LinkOption.NOFOLLOW_LINKS);
+        UserPrincipal user = FileSystems.getDefault().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (!owner.equals(user)) {
+            throw new DaemonException(path + " belongs to " + owner.getName() + ", not " + user.getName());
+        }
+    }
+
+    static void write(DataOutputStream out, byte kind, byte[] payload) throws IOException {
+        // Output frames may come from a flush on another thread than the exit frame, so frames are written whole
+        synchronized (out) {
+            out.writeByte(kind);
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.flush();
+        }
+    }
+
+    static void writeExit(DataOutputStream out, int status) throws IOException {
+        write(out, EXIT, new byte[]{(byte) (status >>> 24), (byte) (status >>> 16), (byte) (status >>> 8), (byte) status});
+    }
+
+    static byte[] readPayload(DataInputStream in) throws IOException {
+        return readPayload(in, java.lang.Integer.MAX_VALUE);
+    }
+
+    // Frames longer than maxLength are rejected before any of the payload is read. The payload buffer grows
+    // as bytes arrive, so a length alone does not allocate it.
+    static byte[] readPayload(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new DaemonException("Invalid frame length: " + length);
+        } else if (length > maxLength) {
+            throw new DaemonException("Request of " + length + " bytes exceeds the limit of " + maxLength + " bytes");
+        }
+        byte[] payload = in.readNBytes(length);
+        if (payload.length < length) {
+            throw new EOFException();
+        }
+        return payload;
+    }
+
+    static int exitStatus(byte[] payload) {
+        return ((payload[0] & 0xff) << 24) | ((payload[1] & 0xff) << 16) | ((payload[2] & 0xff) << 8) | (payload[3] & 0xff);
+    }
+}
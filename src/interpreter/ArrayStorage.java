@@ -0,0 +1,58 @@
+package interpreter;
+
+// Backing store of an ArrayValue. Each strategy only accepts the element type it can hold unboxed;
+// storing anything else makes the array switch to a more general strategy first.
+abstract class ArrayStorage {
+    abstract int length();
+
+    abstract Object get(int index);
+
+    abstract boolean accepts(Object value);
+
+    abstract void set(int index, Object value);
+
+    abstract void append(Object value);
+
+    abstract ArrayStorage generalize();
+
+    static ArrayStorage forElements(Object[] elements) {
+        boolean ints = elements.length > 0;
+        boolean booleans = elements.length > 0;
+        for (Object element : elements) {
+            ints &= element instanceof Integer;
+            booleans &= element instanceof Boolean;
+        }
+        if (ints) {
+            int[] values = new int[elements.length];
+            for (int i = 0; i < elements.length; i++) {
+                values[i] = (Integer) elements[i];
+            }
+            return new IntArrayStorage(values, values.length);
+        } else if (booleans) {
+            BooleanArrayStorage storage = new BooleanArrayStorage(elements.length);
+            for (Object element : elements) {
+                storage.append(element);
+            }
+            return storage;
+        }
+        return new ObjectArrayStorage(elements.clone(), elements.length);
+    }
+
+    // Empty arrays pick their strategy from the first element stored in them
+    static ArrayStorage forElement(Object value) {
+        if (value instanceof Integer) {
+            return new IntArrayStorage(new int[8], 0);
+        } else if (value instanceof Boolean) {
+            return new BooleanArrayStorage(8);
+        }
+        return new ObjectArrayStorage(new Object[8], 0);
+    }
+
+    static int grow(int capacity) {
+        int grown = Math.max(8, capacity + (capacity >> 1));
+        if (grown < 0) {
+            throw new OutOfMemoryError("Array too large");
+        }
+        return grown;
+    }
+}
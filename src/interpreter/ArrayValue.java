@@ -0,0 +1,147 @@
+package interpreter;
+
+// Growable array whose storage matches its elements: int[] while it only holds integers, a bitset while it
+// only holds booleans, and Object[] once the types are mixed. Storing a mismatched element moves the
+// elements to the more general storage; arrays never switch back.
+public final class ArrayValue {
+    private ArrayStorage storage;
+
+    private ArrayValue(ArrayStorage storage) {
+        this.storage = storage;
+    }
+
+    public static ArrayValue of(Object... elements) {
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = Rope.normalize(elements[i]);
+        }
+        return new ArrayValue(ArrayStorage.forElements(elements));
+    }
+
+    public int length() {
+        return storage.length();
+    }
+
+    public Object get(int index) {
+        checkIndex(index);
+        return storage.get(index);
+    }
+
+    public int getInt(int index) {
+        checkIndex(index);
+        if (storage instanceof IntArrayStorage) {
+            return ((IntArrayStorage) storage).getInt(index);
+        }
+        Object value = storage.get(index);
+        if (value instanceof Integer) {
+            return (Integer) value;
+        }
+        throw new InterpreterException(String.format("Expected Integer but got %s", typeName(value)));
+    }
+
+    public boolean getBoolean(int index) {
+        checkIndex(index);
+        if (storage instanceof BooleanArrayStorage) {
+            return ((BooleanArrayStorage) storage).getBoolean(index);
+        }
+        Object value = storage.get(index);
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw new InterpreterException(String.format("Expected Boolean but got %s", typeName(value)));
+    }
+
+    public void set(int index, Object value) {
+        checkIndex(index);
+        value = Rope.normalize(value);
+        if (!storage.accepts(value)) {
+            storage = storage.generalize();
+        }
+        storage.set(index, value);
+    }
+
+    public void setInt(int index, int value) {
+        checkIndex(index);
+        if (storage instanceof IntArrayStorage) {
+            ((IntArrayStorage) storage).setInt(index, value);
+        } else {
+            set(index, value);
+        }
+    }
+
+    public void append(Object value) {
+        value = Rope.normalize(value);
+        if (storage.length() == 0) {
+            storage = ArrayStorage.forElement(value);
+        } else if (!storage.accepts(value)) {
+            storage = storage.generalize();
+        }
+        storage.append(value);
+    }
+
+    // Name of the current storage strategy, for diagnostics
+    public String getStorageKind() {
+        if (storage instanceof IntArrayStorage) {
+            return "int";
+        } else if (storage instanceof BooleanArrayStorage) {
+            return "boolean";
+        }
+        return "object";
+    }
+
+    private static String typeName(Object value) {
+        if (value instanceof ArrayValue) {
+            return "Array";
+        } else if (value instanceof MapValue) {
+            return "Map";
+        }
+        return value == null ? "null" : value.getClass().getSimpleName();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= storage.length()) {
+            throw new InterpreterException(String.format("Array index %d out of bounds for length %d", index, storage.length()));
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ArrayValue)) {
+            return false;
+        }
+        ArrayValue array = (ArrayValue) other;
+        if (array.length() != length()) {
+            return false;
+        }
+        for (int i = 0; i < length(); i++) {
+            if (!storage.get(i).equals(array.storage.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < length(); i++) {
+            hash = 31 * hash + storage.get(i).hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < length(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            Object element = storage.get(i);
+            sb.append(element == this ? "[...]" : element);
+        }
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,58 @@
+package interpreter;
+
+import java.util.Arrays;
+
+// One bit per element
+class BooleanArrayStorage extends ArrayStorage {
+    private long[] words;
+    private int length;
+
+    BooleanArrayStorage(int capacity) {
+        this.words = new long[Math.max(1, (capacity + 63) >>> 6)];
+    }
+
+    @Override
+    int length() {
+        return length;
+    }
+
+    @Override
+    Object get(int index) {
+        return getBoolean(index);
+    }
+
+    boolean getBoolean(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    @Override
+    boolean accepts(Object value) {
+        return value instanceof Boolean;
+    }
+
+    @Override
+    void set(int index, Object value) {
+        if ((Boolean) value) {
+            words[index >>> 6] |= 1L << index;
+        } else {
+            words[index >>> 6] &= ~(1L << index);
+        }
+    }
+
+    @Override
+    void append(Object value) {
+        if (length == words.length << 6) {
+            words = Arrays.copyOf(words, grow(words.length));
+        }
+        set(length++, value);
+    }
+
+    @Override
+    ArrayStorage generalize() {
+        Object[] objects = new Object[Math.max(length, 8)];
+        for (int i = 0; i < length; i++) {
+            objects[i] = getBoolean(i);
+        }
+        return new ObjectArrayStorage(objects, length);
+    }
+}
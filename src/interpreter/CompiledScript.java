@@ -0,0 +1,113 @@
+package interpreter;
+
+import compiler.Chunk;
+import compiler.Compiler;
+import compiler.CompilerException;
+import jit.CompiledProgram;
+import jit.JitCompiler;
+import jit.JitException;
+import lexer.CompactLexer;
+import optimizer.Optimizer;
+import output.BufferedOutputSink;
+import output.OutputSink;
+import parser.AST.AST;
+import parser.Parser;
+import resolver.Resolver;
+import vm.VM;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Parsed, resolved and compiled once; every execute call runs against its own Environment,
+// so one instance can be shared by any number of threads
+public class CompiledScript {
+    private final AST program;
+    private final String[] slotNames;
+    private final List<String> bindingNames;
+    private final Chunk chunk;
+    private final CompiledProgram compiledProgram;
+    private final Engine engine;
+
+    private CompiledScript(AST program, String[] slotNames, List<String> bindingNames, Chunk chunk, CompiledProgram compiledProgram) {
+        this.engine = chunk != null ? Engine.VM : compiledProgram != null ? Engine.JIT : Engine.TREE_WALKER;
+        this.program = program;
+        this.slotNames = slotNames;
+        this.bindingNames = bindingNames;
+        this.chunk = chunk;
+        this.compiledProgram = compiledProgram;
+    }
+
+    public static CompiledScript compile(String source, String... bindingNames) {
+        return compile(source, Engine.TREE_WALKER, bindingNames);
+    }
+
+    public static CompiledScript compile(String source, Engine engine, String... bindingNames) {
+        Parser parser = new Parser(new CompactLexer(source).tokenize().cursor());
+        return compile(Optimizer.optimize(parser.parseProgram()), engine, bindingNames);
+    }
+
+    // Binding names are declared up front so the resolver can give them frame slots
+    public static CompiledScript compile(AST program, Engine engine, String... bindingNames) {
+        Environment globals = new Environment();
+        Interpreter.defineGlobals(globals);
+        Set<String> predefined = new HashSet<>(globals.getVariableNames());
+        predefined.addAll(Arrays.asList(bindingNames));
+
+        Resolver resolver = new Resolver(predefined);
+        AST resolved = resolver.resolve(program);
+
+        Chunk chunk = null;
+        CompiledProgram compiledProgram = null;
+        try {
+            if (engine == Engine.VM) {
+                chunk = Compiler.compile(resolved);
+            } else if (engine == Engine.JIT) {
+                compiledProgram = JitCompiler.compile(resolved);
+            }
+        } catch (CompilerException | JitException e) {
+            // Falls back to the tree walker
+        }
+        return new CompiledScript(resolved, resolver.getSlotNames(), List.of(bindingNames), chunk, compiledProgram);
+    }
+
+    public List<String> getBindingNames() {
+        return bindingNames;
+    }
+
+    public Object execute() {
+        return execute(Collections.emptyMap());
+    }
+
+    public Object execute(Map<String, ?> bindings) {
+        return execute(bindings, BufferedOutputSink.standardOutput());
+    }
+
+    public Object execute(Map<String, ?> bindings, OutputSink output) {
+        Environment env = new Environment();
+        env.setOutput(output);
+        Interpreter.defineGlobals(env);
+        for (String name : bindingNames) {
+            if (!bindings.containsKey(name)) {
+                throw new InterpreterException("Missing binding: " + name);
+            }
+        }
+        for (Map.Entry<String, ?> binding : bindings.entrySet()) {
+            env.setVariable(binding.getKey(), binding.getValue());
+        }
+        env.allocateSlots(slotNames);
+        return Interpreter.measure(engine, () -> run(env));
+    }
+
+    private Object run(Environment env) {
+        if (chunk != null) {
+            return VM.run(chunk, env);
+        } else if (compiledProgram != null) {
+            return compiledProgram.run(env);
+        }
+        return program.execute(env);
+    }
+}
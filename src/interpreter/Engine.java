@@ -0,0 +1,7 @@
+package interpreter;
+
+public enum Engine {
+    TREE_WALKER,
+    VM,
+    JIT
+}
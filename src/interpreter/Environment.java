@@ -1,23 +1,107 @@
 package interpreter;
 
+import output.BufferedOutputSink;
+import output.OutputSink;
+
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public class Environment {
+    // Value of slots whose variable has not been assigned yet
+    public static final Object UNDEFINED = new Object();
+
     private final Map<String, Object> variables;
+    private String[] slotNames = new String[0];
+    private Object[] slots = new Object[0];
+    // Slot of each allocated name, built on the first access by name after allocateSlots
+    private Map<String, Integer> slotIndexes;
+    private OutputSink output = BufferedOutputSink.standardOutput();
+    private final FrameStack frames = new FrameStack();
 
     public Environment() {
         this.variables = new HashMap<>();
     }
 
+    // Accesses by name see the current value of a name that also has a slot
     public Object getVariable(String name) {
-        if (!variables.containsKey(name)) {
+        int slot = slotIndex(name);
+        if (slot >= 0 && slots[slot] != UNDEFINED) {
+            return slots[slot];
+        }
+        Object value = variables.get(name);
+        if (value == null && !variables.containsKey(name)) {
             throw new RuntimeException("Variable not defined: " + name);
         }
-        return variables.get(name);
+        return value;
+    }
+
+    public boolean hasVariable(String name) {
+        int slot = slotIndex(name);
+        return (slot >= 0 && slots[slot] != UNDEFINED) || variables.containsKey(name);
     }
 
     public void setVariable(String name, Object value) {
+        int slot = slotIndex(name);
+        if (slot >= 0) {
+            slots[slot] = value;
+        }
         variables.put(name, value);
     }
+
+    private int slotIndex(String name) {
+        if (slotNames.length == 0) {
+            return -1;
+        }
+        if (slotIndexes == null) {
+            slotIndexes = new HashMap<>();
+            for (int i = 0; i < slotNames.length; i++) {
+                slotIndexes.put(slotNames[i], i);
+            }
+        }
+        Integer slot = slotIndexes.get(name);
+        return slot != null ? slot : -1;
+    }
+
+    public Set<String> getVariableNames() {
+        return variables.keySet();
+    }
+
+    public OutputSink getOutput() {
+        return output;
+    }
+
+    public void setOutput(OutputSink output) {
+        this.output = output;
+    }
+
+    public FrameStack getFrames() {
+        return frames;
+    }
+
+    public Object getSlot(int slot) {
+        return slots[slot];
+    }
+
+    public void setSlot(int slot, Object value) {
+        slots[slot] = value;
+    }
+
+    public void allocateSlots(String[] names) {
+        flushSlots();
+        slotNames = names;
+        slotIndexes = null;
+        slots = new Object[names.length];
+        for (int i = 0; i < names.length; i++) {
+            slots[i] = variables.containsKey(names[i]) ? variables.get(names[i]) : UNDEFINED;
+        }
+    }
+
+    public void flushSlots() {
+        for (int i = 0; i < slotNames.length; i++) {
+            if (slots[i] != UNDEFINED) {
+                variables.put(slotNames[i], slots[i]);
+            }
+        }
+    }
 }
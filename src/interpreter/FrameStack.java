@@ -0,0 +1,91 @@
+package interpreter;
+
+import java.util.Arrays;
+
+// Call frames of one Environment, laid out back to back in a single growable array. A frame is a
+// fixed run of slots (parameters first, then locals), so a call allocates nothing once the array
+// has grown to the deepest recursion seen. An Environment is confined to one thread, which makes
+// this the per-thread frame stack.
+public final class FrameStack {
+    // Returned through the body of a function whose tail call is pending
+    public static final Object TAIL_CALL = new Object();
+
+    private Object[] slots = new Object[64];
+    private int base;
+    private int top;
+    private Object returnValue;
+    private FunctionValue pendingFunction;
+    private int pendingFrame;
+
+    // Claims a frame above the current one without entering it, so arguments can still be
+    // evaluated in the caller's frame
+    public int reserve(int size) {
+        int frame = top;
+        int end = frame + size;
+        if (end > slots.length) {
+            if (end < 0) {
+                throw new InterpreterException("Call stack too deep");
+            }
+            slots = Arrays.copyOf(slots, Math.max(end, slots.length * 2));
+        }
+        Arrays.fill(slots, frame, end, Environment.UNDEFINED);
+        top = end;
+        return frame;
+    }
+
+    public void setArgument(int frame, int index, Object value) {
+        slots[frame + index] = value;
+    }
+
+    // Returns the caller's frame, to be handed back to leave
+    public int enter(int frame) {
+        int callerBase = base;
+        base = frame;
+        return callerBase;
+    }
+
+    public void leave(int frame, int callerBase) {
+        base = callerBase;
+        top = frame;
+    }
+
+    public Object getLocal(int slot) {
+        return slots[base + slot];
+    }
+
+    public void setLocal(int slot, Object value) {
+        slots[base + slot] = value;
+    }
+
+    public void setReturnValue(Object value) {
+        returnValue = value;
+    }
+
+    public Object takeReturnValue() {
+        Object value = returnValue;
+        returnValue = null;
+        return value;
+    }
+
+    // Arguments of a tail call are staged in a frame reserved above the current one, so calls made
+    // while evaluating them cannot disturb the frame they will replace
+    public void setPendingCall(FunctionValue function, int stagingFrame) {
+        pendingFunction = function;
+        pendingFrame = stagingFrame;
+    }
+
+    // Replaces the frame with one for the pending tail call and returns the function to run in it
+    public FunctionValue replaceFrame(int frame) {
+        FunctionValue function = pendingFunction;
+        int staging = pendingFrame;
+        pendingFunction = null;
+        System.arraycopy(slots, staging, slots, frame, function.getArity());
+        int end = frame + function.getFrameSize();
+        if (end > slots.length) {
+            slots = Arrays.copyOf(slots, Math.max(end, slots.length * 2));
+        }
+        Arrays.fill(slots, frame + function.getArity(), end, Environment.UNDEFINED);
+        top = end;
+        return function;
+    }
+}
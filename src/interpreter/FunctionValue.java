@@ -0,0 +1,38 @@
+package interpreter;
+
+import parser.AST.AST;
+
+public final class FunctionValue {
+    private final String name;
+    private final int arity;
+    private final int frameSize;
+    private final AST body;
+
+    public FunctionValue(String name, int arity, int frameSize, AST body) {
+        this.name = name;
+        this.arity = arity;
+        this.frameSize = frameSize;
+        this.body = body;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getArity() {
+        return arity;
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public AST getBody() {
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        return "<fun " + name + ">";
+    }
+}
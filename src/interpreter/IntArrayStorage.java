@@ -0,0 +1,58 @@
+package interpreter;
+
+import java.util.Arrays;
+
+class IntArrayStorage extends ArrayStorage {
+    private int[] values;
+    private int length;
+
+    IntArrayStorage(int[] values, int length) {
+        this.values = values;
+        this.length = length;
+    }
+
+    @Override
+    int length() {
+        return length;
+    }
+
+    @Override
+    Object get(int index) {
+        return values[index];
+    }
+
+    int getInt(int index) {
+        return values[index];
+    }
+
+    void setInt(int index, int value) {
+        values[index] = value;
+    }
+
+    @Override
+    boolean accepts(Object value) {
+        return value instanceof Integer;
+    }
+
+    @Override
+    void set(int index, Object value) {
+        values[index] = (Integer) value;
+    }
+
+    @Override
+    void append(Object value) {
+        if (length == values.length) {
+            values = Arrays.copyOf(values, grow(values.length));
+        }
+        values[length++] = (Integer) value;
+    }
+
+    @Override
+    ArrayStorage generalize() {
+        Object[] objects = new Object[Math.max(values.length, 8)];
+        for (int i = 0; i < length; i++) {
+            objects[i] = values[i];
+        }
+        return new ObjectArrayStorage(objects, length);
+    }
+}
@@ -1,46 +1,351 @@
 package interpreter;
 
+import cache.ProgramCache;
+import compiler.Chunk;
+import compiler.Compiler;
+import compiler.CompilerException;
+import jit.CompiledProgram;
+import jit.JitCompiler;
+import jit.JitException;
+import metrics.Allocations;
+import metrics.ExecuteEvent;
+import metrics.LexEvent;
+import metrics.MetricsRegistry;
+import metrics.PhaseMetrics;
+import lexer.CompactLexer;
 import lexer.Lexer;
-import lexer.Token;
 import parser.AST.*;
+import parser.AST.specialized.SpecializationStats;
+import optimizer.Memoizer;
+import optimizer.Optimizer;
+import output.OutputSink;
+import parallel.DependencyGraph;
+import parallel.ParallelExecutor;
 import parser.*;
+import profiler.Profiler;
+import resolver.Resolver;
+import vm.VM;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class Interpreter {
+    private static final int PROFILE_REPORT_LIMIT = 25;
+
     private final Environment globalEnv = new Environment();
+    private final Engine engine;
+    private final Map<AST, Chunk> chunks = new WeakHashMap<>();
+    private final Map<AST, CompiledProgram> compiledPrograms = new WeakHashMap<>();
+    private final Set<AST> interpretedPrograms = Collections.newSetFromMap(new WeakHashMap<>());
+    private final Map<AST, AST> instrumentedPrograms = new WeakHashMap<>();
+    private final Map<AST, DependencyGraph> dependencyGraphs = new WeakHashMap<>();
+    private Profiler profiler;
+    private ParallelExecutor parallelExecutor;
+    private boolean memoize;
 
     public Interpreter() {
-        globalEnv.set("null", null);
-        globalEnv.set("true", true);
-        globalEnv.set("false", false);
+        this(Engine.TREE_WALKER);
+    }
+
+    public Interpreter(Engine engine) {
+        this.engine = engine;
+        defineGlobals(globalEnv);
+    }
+
+    static void defineGlobals(Environment env) {
+        env.setVariable("null", null);
+        env.setVariable("true", true);
+        env.setVariable("false", false);
+    }
+
+    // Profiled programs always run on the tree walker, with every node wrapped by the profiler
+    public Profiler enableProfiling() {
+        if (profiler == null) {
+            profiler = new Profiler();
+        }
+        return profiler;
+    }
+
+    public Profiler getProfiler() {
+        return profiler;
+    }
+
+    // Independent top-level statements run on the pool, each on the interpreter's engine
+    public void enableParallelExecution() {
+        parallelExecutor = new ParallelExecutor();
+    }
+
+    public void enableParallelExecution(ForkJoinPool pool) {
+        parallelExecutor = new ParallelExecutor(pool);
+    }
+
+    // Programs resolved from now on remember pure expressions until a global they read changes
+    public void enableMemoization() {
+        memoize = true;
+    }
+
+    public OutputSink getOutput() {
+        return globalEnv.getOutput();
+    }
+
+    public void setOutput(OutputSink output) {
+        globalEnv.setOutput(output);
+    }
+
+    public AST resolve(AST program) {
+        return resolve(new Resolver(globalEnv.getVariableNames()), program);
+    }
+
+    private AST resolve(Resolver resolver, AST program) {
+        AST resolved = resolver.resolve(program);
+        globalEnv.allocateSlots(resolver.getSlotNames());
+        return memoize ? Memoizer.memoize(resolved) : resolved;
     }
 
     public Object interpret(AST program) {
+        return measure(engine, () -> execute(program));
+    }
+
+    // Reports one execution to JFR and the metrics registry
+    static Object measure(Engine engine, Supplier<Object> execution) {
+        ExecuteEvent event = new ExecuteEvent();
+        long allocated = Allocations.currentThread();
+        event.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            Object result = execution.get();
+            failed = false;
+            return result;
+        } finally {
+            event.engine = engine.name();
+            event.failed = failed;
+            event.allocatedBytes = Allocations.currentThread() - allocated;
+            PhaseMetrics.EXECUTE.record(System.nanoTime() - start, event.allocatedBytes, failed);
+            event.commit();
+        }
+    }
+
+    private Object execute(AST program) {
+        try {
+            if (profiler != null) {
+                return instrumentedPrograms.computeIfAbsent(program, profiler::instrument).execute(globalEnv);
+            } else if (parallelExecutor != null && program instanceof Compound) {
+                DependencyGraph graph = dependencyGraphs.computeIfAbsent(program, p -> DependencyGraph.build(p.getChildren()));
+                return parallelExecutor.execute(program.getChildren(), graph, this::executeOnEngine);
+            }
+            return executeOnEngine(program);
+        } finally {
+            globalEnv.flushSlots();
+        }
+    }
+
+    // Parallel execution calls this for its statements from several threads
+    private Object executeOnEngine(AST program) {
+        if (engine == Engine.VM) {
+            Chunk chunk = compileChunk(program);
+            if (chunk != null) {
+                return VM.run(chunk, globalEnv);
+            }
+        } else if (engine == Engine.JIT) {
+            CompiledProgram compiled = compileProgram(program);
+            if (compiled != null) {
+                return compiled.run(globalEnv);
+            }
+        }
         return program.execute(globalEnv);
     }
 
-    public static void main(String[] args) {
-        if (args.length == 0) {
-            System.out.println("Usage: java interpreter.Interpreter <filename>");
-            return;
+    // Compiled forms are cached per program; null marks programs that fall back to the tree walker
+    private synchronized Chunk compileChunk(AST program) {
+        if (!chunks.containsKey(program)) {
+            try {
+                chunks.put(program, Compiler.compile(program));
+            } catch (CompilerException e) {
+                chunks.put(program, null);
+            }
+        }
+        return chunks.get(program);
+    }
+
+    // The JIT compiles a program the second time it runs. The first run stays in the tree walker, which
+    // still promotes hot loops, so code that runs once is not compiled.
+    private synchronized CompiledProgram compileProgram(AST program) {
+        if (interpretedPrograms.add(program)) {
+            return null;
+        }
+        if (!compiledPrograms.containsKey(program)) {
+            try {
+                compiledPrograms.put(program, JitCompiler.compile(program));
+            } catch (JitException e) {
+                compiledPrograms.put(program, null);
+            }
+        }
+        return compiledPrograms.get(program);
+    }
+
+    // Lexing, parsing and execution alternate statement by statement. Each phase is reported once for the run,
+    // with the time spent in it.
+    public void interpret(Reader source) {
+        LexEvent lexEvent = new LexEvent();
+        ExecuteEvent executeEvent = new ExecuteEvent();
+        lexEvent.begin();
+        executeEvent.begin();
+        Lexer lexer = new Lexer(source);
+        StreamedRun run = new StreamedRun();
+        boolean failed = true;
+        try {
+            new Parser(lexer).parseStatements(run);
+            failed = false;
+        } finally {
+            lexer.reportStream(lexEvent, failed && !run.running);
+            executeEvent.engine = engine.name();
+            executeEvent.failed = run.executing;
+            executeEvent.allocatedBytes = run.allocatedBytes;
+            PhaseMetrics.EXECUTE.record(run.nanos, run.allocatedBytes, run.executing);
+            executeEvent.commit();
+        }
+    }
+
+    // Resolves and runs the statements of a streamed source as the parser hands them over, adding up the time
+    // and allocation spent running them
+    private final class StreamedRun implements Consumer<AST> {
+        private Set<String> defined = globalEnv.getVariableNames();
+        private long nanos;
+        private long allocatedBytes;
+        // Set while a statement is handled, and while it executes, so a failure is reported against its phase
+        private boolean running;
+        private boolean executing;
+
+        @Override
+        public void accept(AST parsed) {
+            running = true;
+            // Each statement is resolved against the globals the statements before it define, so an undefined
+            // variable is reported before the statement runs, as it is for a whole program
+            Resolver resolver = new Resolver(defined, false);
+            AST statement = resolve(resolver, Optimizer.optimize(parsed));
+            defined = resolver.getDefinedNames();
+            long start = System.nanoTime();
+            long allocated = Allocations.currentThread();
+            executing = true;
+            try {
+                execute(statement);
+                executing = false;
+            } finally {
+                nanos += System.nanoTime() - start;
+                allocatedBytes += Allocations.currentThread() - allocated;
+            }
+            running = false;
+        }
+    }
+
+    // Parses and optimizes the source, or loads the already optimized tree from the cache when the source is unchanged
+    public static AST loadProgram(ByteBuffer source, ProgramCache cache) {
+        byte[] key = cache != null ? ProgramCache.key(source) : null;
+        AST program = cache != null ? cache.load(key) : null;
+        if (program != null) {
+            return program;
+        }
+
+        program = Optimizer.optimize(ParallelParser.parse(source));
+        if (cache != null) {
+            try {
+                cache.store(key, program);
+            } catch (IOException e) {
+                System.err.println("Failed to write program cache: " + e.getMessage());
+            }
         }
+        return program;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Utils.callWithLargeStack(() -> {
+            run(args);
+            return null;
+        });
+    }
 
-        String fileName = args[0];
-        String input = Utils.readFile(fileName);
-        if (input == null) {
+    private static void run(String[] args) {
+        Engine engine = Engine.TREE_WALKER;
+        boolean profile = false;
+        boolean parallel = false;
+        boolean memoize = false;
+        String fileName = null;
+        for (String arg : args) {
+            if (arg.equals("--vm")) {
+                engine = Engine.VM;
+            } else if (arg.equals("--jit")) {
+                engine = Engine.JIT;
+            } else if (arg.equals("--profile")) {
+                profile = true;
+            } else if (arg.equals("--parallel")) {
+                parallel = true;
+            } else if (arg.equals("--memo")) {
+                memoize = true;
+            } else {
+                fileName = arg;
+            }
+        }
+        if (fileName == null) {
+            System.out.println("Usage: java interpreter.Interpreter [--vm | --jit] [--profile] [--parallel] [--memo] <filename>");
+            return;
+        }
+        ByteBuffer source;
+        try {
+            source = CompactLexer.mapFile(Paths.get(fileName));
+        } catch (IOException e) {
             System.out.println("Failed to read file: " + fileName);
             return;
         }
 
+        AST program = loadProgram(source, ProgramCache.fromSystemProperties());
 
-        Lexer lexer = new Lexer(input);
-        List<Token> tokens = lexer.tokenize();
-        Parser parser = new Parser(tokens);
-        AST program = parser.parseProgram();
-
-        Interpreter interpreter = new Interpreter();
-        Object result = interpreter.interpret(program);
+        if (java.lang.Boolean.getBoolean("openwz.metrics.jmx")) {
+            MetricsRegistry.global().registerMBean();
+        }
+        Interpreter interpreter = new Interpreter(engine);
+        if (profile) {
+            interpreter.enableProfiling();
+        }
+        if (parallel) {
+            interpreter.enableParallelExecution();
+        }
+        if (memoize) {
+            interpreter.enableMemoization();
+        }
+        Object result;
+        try {
+            result = interpreter.interpret(interpreter.resolve(program));
+        } finally {
+            interpreter.getOutput().flush();
+        }
         System.out.println(result);
+        if (profile) {
+            System.err.print(interpreter.getProfiler().report(PROFILE_REPORT_LIMIT));
+            Path stacks = Paths.get(fileName + ".collapsed");
+            try {
+                Files.writeString(stacks, interpreter.getProfiler().collapsedStacks());
+                System.err.println("Collapsed stacks written to " + stacks);
+            } catch (IOException e) {
+                System.err.println("Failed to write collapsed stacks: " + e.getMessage());
+            }
+        }
+        if (java.lang.Boolean.getBoolean("openwz.debug.metrics")) {
+            System.err.print(MetricsRegistry.global().report());
+        }
+        if (java.lang.Boolean.getBoolean("openwz.debug.specialization")) {
+            System.err.println(SpecializationStats.report());
+        }
     }
 }
@@ -0,0 +1,246 @@
+package interpreter;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// Insertion-ordered hash map. An open-addressing index of entry numbers sits in front of parallel entry
+// arrays. Int keys are stored unboxed and compared as ints. String literals are interned by the parser, so a
+// literal key inserted and looked up by a literal matches by reference; other strings are stored as they are
+// and compared by hash and equals, which keeps computed keys out of the JVM's string table.
+public final class MapValue {
+    private static final int MIN_CAPACITY = 8;
+    // Stands in the key array for entries whose key lives in intKeys
+    private static final Object INT_KEY = new Object();
+
+    // Entry number + 1 per slot, 0 for empty; the length is a power of two at least twice the size
+    private int[] index;
+    private Object[] keys;
+    private int[] intKeys;
+    private int[] hashes;
+    private Object[] values;
+    private int size;
+
+    public MapValue() {
+        this(MIN_CAPACITY);
+    }
+
+    public MapValue(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        index = new int[capacity];
+        int entries = Math.max(expectedSize, MIN_CAPACITY / 2);
+        keys = new Object[entries];
+        intKeys = new int[entries];
+        hashes = new int[entries];
+        values = new Object[entries];
+    }
+
+    public int length() {
+        return size;
+    }
+
+    // Returns null when the key is absent
+    public Object get(Object key) {
+        int entry = find(key);
+        return entry < 0 ? null : values[entry];
+    }
+
+    public Object get(int key) {
+        int entry = findInt(key);
+        return entry < 0 ? null : values[entry];
+    }
+
+    public Object getExisting(Object key) {
+        int entry = find(key);
+        if (entry < 0) {
+            throw new InterpreterException("Key not found: " + Rope.normalize(key));
+        }
+        return values[entry];
+    }
+
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    public void put(Object key, Object value) {
+        key = checkKey(key);
+        if (key instanceof Integer) {
+            put((int) (Integer) key, value);
+            return;
+        }
+        int hash = hash(key.hashCode());
+        int slot = hash & (index.length - 1);
+        while (index[slot] != 0) {
+            int entry = index[slot] - 1;
+            Object existing = keys[entry];
+            if (existing == key || hashes[entry] == hash && existing != INT_KEY && existing.equals(key)) {
+                values[entry] = value;
+                return;
+            }
+            slot = (slot + 1) & (index.length - 1);
+        }
+        insert(slot, key, 0, hash, value);
+    }
+
+    public void put(int key, Object value) {
+        int hash = hash(key);
+        int slot = hash & (index.length - 1);
+        while (index[slot] != 0) {
+            int entry = index[slot] - 1;
+            if (keys[entry] == INT_KEY && intKeys[entry] == key) {
+                values[entry] = value;
+                return;
+            }
+            slot = (slot + 1) & (index.length - 1);
+        }
+        insert(slot, INT_KEY, key, hash, value);
+    }
+
+    private void insert(int slot, Object key, int intKey, int hash, Object value) {
+        if (size == keys.length) {
+            int entries = size + (size >> 1) + 1;
+            keys = Arrays.copyOf(keys, entries);
+            intKeys = Arrays.copyOf(intKeys, entries);
+            hashes = Arrays.copyOf(hashes, entries);
+            values = Arrays.copyOf(values, entries);
+        }
+        keys[size] = key;
+        intKeys[size] = intKey;
+        hashes[size] = hash;
+        values[size] = value;
+        size++;
+        index[slot] = size;
+        if (size * 2 > index.length) {
+            rehash(index.length << 1);
+        }
+    }
+
+    private void rehash(int capacity) {
+        if (capacity <= 0) {
+            throw new OutOfMemoryError("Map too large");
+        }
+        int[] table = new int[capacity];
+        for (int entry = 0; entry < size; entry++) {
+            int slot = hashes[entry] & (capacity - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            table[slot] = entry + 1;
+        }
+        index = table;
+    }
+
+    private int find(Object key) {
+        key = Rope.normalize(key);
+        if (key instanceof Integer) {
+            return findInt((Integer) key);
+        } else if (key == null) {
+            return -1;
+        }
+        int hash = hash(key.hashCode());
+        for (int slot = hash & (index.length - 1); index[slot] != 0; slot = (slot + 1) & (index.length - 1)) {
+            int entry = index[slot] - 1;
+            Object existing = keys[entry];
+            if (existing == key || hashes[entry] == hash && existing != INT_KEY && existing.equals(key)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private int findInt(int key) {
+        int hash = hash(key);
+        for (int slot = hash & (index.length - 1); index[slot] != 0; slot = (slot + 1) & (index.length - 1)) {
+            int entry = index[slot] - 1;
+            if (keys[entry] == INT_KEY && intKeys[entry] == key) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    // Keys must be immutable so their hash cannot change while they are in the table
+    private static Object checkKey(Object key) {
+        key = Rope.normalize(key);
+        if (key instanceof Integer || key instanceof String || key instanceof Boolean) {
+            return key;
+        }
+        throw new InterpreterException("Invalid map key type: " + typeName(key));
+    }
+
+    private static int hash(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Object keyAt(int entry) {
+        return keys[entry] == INT_KEY ? (Object) intKeys[entry] : keys[entry];
+    }
+
+    public ArrayValue keys() {
+        Object[] result = new Object[size];
+        for (int entry = 0; entry < size; entry++) {
+            result[entry] = keyAt(entry);
+        }
+        return ArrayValue.of(result);
+    }
+
+    public ArrayValue values() {
+        return ArrayValue.of(Arrays.copyOf(values, size));
+    }
+
+    private static String typeName(Object value) {
+        if (value instanceof ArrayValue) {
+            return "Array";
+        } else if (value instanceof MapValue) {
+            return "Map";
+        }
+        return value == null ? "null" : value.getClass().getSimpleName();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof MapValue)) {
+            return false;
+        }
+        MapValue map = (MapValue) other;
+        if (map.size != size) {
+            return false;
+        }
+        for (int entry = 0; entry < size; entry++) {
+            int found = keys[entry] == INT_KEY ? map.findInt(intKeys[entry]) : map.find(keys[entry]);
+            if (found < 0 || !Objects.equals(Rope.normalize(values[entry]), Rope.normalize(map.values[found]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Order-independent, like equals
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int entry = 0; entry < size; entry++) {
+            hash += hashes[entry] ^ Objects.hashCode(Rope.normalize(values[entry]));
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int entry = 0; entry < size; entry++) {
+            if (entry > 0) {
+                sb.append(", ");
+            }
+            Object value = values[entry];
+            sb.append(keyAt(entry)).append(": ").append(value == this ? "{...}" : value);
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,46 @@
+package interpreter;
+
+import java.util.Arrays;
+
+class ObjectArrayStorage extends ArrayStorage {
+    private Object[] values;
+    private int length;
+
+    ObjectArrayStorage(Object[] values, int length) {
+        this.values = values;
+        this.length = length;
+    }
+
+    @Override
+    int length() {
+        return length;
+    }
+
+    @Override
+    Object get(int index) {
+        return values[index];
+    }
+
+    @Override
+    boolean accepts(Object value) {
+        return true;
+    }
+
+    @Override
+    void set(int index, Object value) {
+        values[index] = value;
+    }
+
+    @Override
+    void append(Object value) {
+        if (length == values.length) {
+            values = Arrays.copyOf(values, grow(values.length));
+        }
+        values[length++] = value;
+    }
+
+    @Override
+    ArrayStorage generalize() {
+        return this;
+    }
+}
@@ -0,0 +1,125 @@
+package interpreter;
+
+import java.util.ArrayDeque;
+
+// String value built by concatenation. Concatenating is O(1); the characters are copied once, the first
+// time the rope is printed, compared or indexed, and the flat String replaces the tree afterwards.
+public final class Rope implements CharSequence {
+    // Short results are cheaper to copy than to keep as tree nodes
+    private static final int FLAT_THRESHOLD = 64;
+
+    private final int length;
+    // Either the flattened String or an immutable Concat; replacing one reference keeps flattening race-free
+    private Object content;
+
+    private Rope(CharSequence left, CharSequence right, int length) {
+        this.length = length;
+        this.content = new Concat(left, right);
+    }
+
+    private static final class Concat {
+        private final CharSequence left;
+        private final CharSequence right;
+
+        private Concat(CharSequence left, CharSequence right) {
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    public static boolean isString(Object value) {
+        return value instanceof String || value instanceof Rope;
+    }
+
+    // Returns a String or a Rope holding the text of both operands
+    public static Object concat(Object left, Object right) {
+        CharSequence leftText = text(left);
+        CharSequence rightText = text(right);
+        if (leftText.length() == 0) {
+            return rightText;
+        } else if (rightText.length() == 0) {
+            return leftText;
+        }
+        int length = leftText.length() + rightText.length();
+        if (length < 0) {
+            throw new OutOfMemoryError("String too long");
+        }
+        if (length <= FLAT_THRESHOLD) {
+            return leftText.toString().concat(rightText.toString());
+        }
+        return new Rope(leftText, rightText, length);
+    }
+
+    // Ropes become Strings so they compare, hash and print exactly like String values
+    public static Object normalize(Object value) {
+        return value instanceof Rope ? value.toString() : value;
+    }
+
+    public static boolean valueEquals(Object left, Object right) {
+        return normalize(left).equals(normalize(right));
+    }
+
+    private static CharSequence text(Object value) {
+        return value instanceof CharSequence ? (CharSequence) value : String.valueOf(value);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    @Override
+    public String toString() {
+        Object current = content;
+        if (current instanceof String) {
+            return (String) current;
+        }
+        String flat = flatten((Concat) current);
+        content = flat;
+        return flat;
+    }
+
+    // Iterative so that long left-leaning chains such as s = s + x do not overflow the stack
+    private String flatten(Concat root) {
+        StringBuilder sb = new StringBuilder(length);
+        ArrayDeque<CharSequence> pending = new ArrayDeque<>();
+        pending.push(root.right);
+        pending.push(root.left);
+        while (!pending.isEmpty()) {
+            CharSequence part = pending.pop();
+            if (part instanceof Rope) {
+                Object partContent = ((Rope) part).content;
+                if (partContent instanceof String) {
+                    sb.append((String) partContent);
+                } else {
+                    Concat concat = (Concat) partContent;
+                    pending.push(concat.right);
+                    pending.push(concat.left);
+                }
+            } else {
+                sb.append((String) part);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || isString(other) && toString().equals(other.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+}
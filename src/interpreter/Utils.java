@@ -1,10 +1,18 @@
 package interpreter;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.concurrent.Callable;
 
 public class Utils {
+    // Recursive calls nest tree-walker frames on the Java stack; override with -Dopenwz.stack.size=<bytes>
+    private static final long STACK_SIZE = Long.getLong("openwz.stack.size", 1L << 30);
+
     public static String readFile(String fileName) {
         try {
             return new String(Files.readAllBytes(Paths.get(fileName)));
@@ -12,4 +20,39 @@ public class Utils {
             return null;
         }
     }
+
+    public static Reader openReader(String fileName) throws IOException {
+        if (fileName.equals("-")) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8);
+    }
+
+    // Runs the task on a thread with a large stack so deep recursion in scripts does not overflow it.
+    // The stack is reserved up front but only committed as it is used.
+    public static <T> T callWithLargeStack(Callable<T> task) throws Exception {
+        Object[] result = new Object[1];
+        Throwable[] failure = new Throwable[1];
+        Thread thread = largeStackThread(() -> {
+            try {
+                result[0] = task.call();
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        }, "openwz-main");
+        thread.start();
+        thread.join();
+        if (failure[0] instanceof Exception) {
+            throw (Exception) failure[0];
+        } else if (failure[0] instanceof Error) {
+            throw (Error) failure[0];
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) result[0];
+        return value;
+    }
+
+    public static Thread largeStackThread(Runnable task, String name) {
+        return new Thread(null, task, name, STACK_SIZE);
+    }
 }
@@ -0,0 +1,173 @@
+package jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Writes a class made of public static methods. Version 49 class files need no StackMapTable, which
+// keeps hand-emitted branches simple; the verifier infers frames itself.
+class ClassFileWriter {
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    // Keyed by lists rather than concatenated strings, which keeps the first compilation in a JVM from
+    // bootstrapping a string concatenation for every kind of entry
+    private final Map<List<Object>, Integer> entries = new HashMap<>();
+    private int poolCount = 1;
+
+    int utf8(String value) {
+        List<Object> key = List.of(CONSTANT_UTF8, value);
+        Integer index = entries.get(key);
+        if (index != null) {
+            return index;
+        }
+        try {
+            pool.writeByte(CONSTANT_UTF8);
+            pool.writeUTF(value);
+        } catch (IOException e) {
+            throw new JitException("Failed to write constant pool", e);
+        }
+        return add(key);
+    }
+
+    int integer(int value) {
+        List<Object> key = List.of(CONSTANT_INTEGER, value);
+        Integer index = entries.get(key);
+        if (index != null) {
+            return index;
+        }
+        write(CONSTANT_INTEGER, value >>> 16, value & 0xFFFF);
+        return add(key);
+    }
+
+    int classRef(String internalName) {
+        return reference(CONSTANT_CLASS, utf8(internalName));
+    }
+
+    int string(String value) {
+        return reference(CONSTANT_STRING, utf8(value));
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameAndType = reference(CONSTANT_NAME_AND_TYPE, utf8(name), utf8(descriptor));
+        return reference(tag, ownerIndex, nameAndType);
+    }
+
+    // An entry made of one or two indexes of other entries
+    private int reference(int tag, int... indexes) {
+        List<Object> key = indexes.length == 1 ? List.of(tag, indexes[0]) : List.of(tag, indexes[0], indexes[1]);
+        Integer index = entries.get(key);
+        if (index != null) {
+            return index;
+        }
+        write(tag, indexes);
+        return add(key);
+    }
+
+    private void write(int tag, int... shorts) {
+        try {
+            pool.writeByte(tag);
+            for (int value : shorts) {
+                pool.writeShort(value);
+            }
+        } catch (IOException e) {
+            throw new JitException("Failed to write constant pool", e);
+        }
+    }
+
+    private int add(List<Object> key) {
+        if (poolCount > 0xFFFF) {
+            throw new JitException("Constant pool too large");
+        }
+        entries.put(key, poolCount);
+        return poolCount++;
+    }
+
+    byte[] toByteArray(String className, List<Method> methods) {
+        int thisClass = classRef(className);
+        int superClass = classRef("java/lang/Object");
+        int codeAttribute = utf8("Code");
+        for (Method method : methods) {
+            utf8(method.name);
+            utf8(method.descriptor);
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(poolCount);
+            poolBytes.writeTo(out);
+            out.writeShort(0x0031); // public final super
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+            out.writeShort(methods.size());
+            for (Method method : methods) {
+                out.writeShort(0x0009); // public static
+                out.writeShort(utf8(method.name));
+                out.writeShort(utf8(method.descriptor));
+                out.writeShort(1);
+                out.writeShort(codeAttribute);
+                int handlers = method.handler != null ? 1 : 0;
+                out.writeInt(12 + method.code.length + 8 * handlers);
+                out.writeShort(method.maxStack);
+                out.writeShort(method.maxLocals);
+                out.writeInt(method.code.length);
+                out.write(method.code);
+                out.writeShort(handlers);
+                if (method.handler != null) {
+                    out.writeShort(method.handler[0]);
+                    out.writeShort(method.handler[1]);
+                    out.writeShort(method.handler[2]);
+                    out.writeShort(0); // any exception
+                }
+                out.writeShort(0); // code attributes
+            }
+            out.writeShort(0); // class attributes
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new JitException("Failed to write class file", e);
+        }
+    }
+
+    static class Method {
+        final String name;
+        final String descriptor;
+        final byte[] code;
+        final int maxStack;
+        final int maxLocals;
+        // Start, end and handler position of a handler for any exception, or null
+        final int[] handler;
+
+        Method(String name, String descriptor, byte[] code, int maxStack, int maxLocals, int[] handler) {
+            this.name = name;
+            this.descriptor = descriptor;
+            this.code = code;
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+            this.handler = handler;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package jit;
+
+import interpreter.Environment;
+
+import java.lang.invoke.MethodHandle;
+import java.util.function.Supplier;
+
+public class CompiledProgram {
+    private final MethodHandle entryPoint;
+    private final String[] slotNames;
+    // Variables the code keeps as unboxed ints. They must hold integers or be undefined on entry;
+    // otherwise the run goes to a variant compiled without int types.
+    private final int[] intFrameSlots;
+    private final int[] intSlots;
+    private final Supplier<CompiledProgram> untypedCompiler;
+    // Racy by design: a lost update only compiles the untyped variant again
+    private CompiledProgram untyped;
+
+    CompiledProgram(MethodHandle entryPoint, String[] slotNames, int[] intFrameSlots, int[] intSlots, Supplier<CompiledProgram> untypedCompiler) {
+        this.entryPoint = entryPoint;
+        this.slotNames = slotNames;
+        this.intFrameSlots = intFrameSlots;
+        this.intSlots = intSlots;
+        this.untypedCompiler = untypedCompiler;
+    }
+
+    public Object run(Environment env) {
+        if (!holdsInts(env)) {
+            CompiledProgram program = untyped;
+            if (program == null) {
+                program = untypedCompiler.get();
+                untyped = program;
+            }
+            return program.run(env);
+        }
+        Object[] slots = new Object[slotNames.length];
+        for (int i = 0; i < slotNames.length; i++) {
+            slots[i] = env.hasVariable(slotNames[i]) ? env.getVariable(slotNames[i]) : Environment.UNDEFINED;
+        }
+        try {
+            return (Object) entryPoint.invokeExact(slots, env);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new JitException("Compiled program failed", e);
+        } finally {
+            for (int i = 0; i < slotNames.length; i++) {
+                if (slots[i] != Environment.UNDEFINED) {
+                    env.setVariable(slotNames[i], slots[i]);
+                }
+            }
+        }
+    }
+
+    private boolean holdsInts(Environment env) {
+        for (int slot : intFrameSlots) {
+            Object value = env.getSlot(slot);
+            if (value != Environment.UNDEFINED && !(value instanceof Integer)) {
+                return false;
+            }
+        }
+        for (int slot : intSlots) {
+            String name = slotNames[slot];
+            if (env.hasVariable(name) && !(env.getVariable(name) instanceof Integer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,926 @@
+package jit;
+
+import interpreter.Environment;
+import lexer.TokenType;
+import parser.AST.AST;
+import parser.AST.Assignment;
+import parser.AST.BinOp;
+import parser.AST.Compound;
+import parser.AST.For;
+import parser.AST.IfElse;
+import parser.AST.MemoNode;
+import parser.AST.Print;
+import parser.AST.SlotAssignment;
+import parser.AST.SlotVar;
+import parser.AST.StringNode;
+import parser.AST.UnaryOp;
+import parser.AST.Var;
+import parser.AST.While;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// Each compiled method copies the variables it uses into JVM locals on entry and writes the ones it assigns
+// back when it returns or throws. A variable that is only ever assigned int values is held unboxed, as an
+// int local and a defined flag, and operators whose operands are statically typed compile to plain JVM
+// instructions. Everything else goes through JitRuntime, which reports errors like the tree walker: an
+// operator in a value context evaluates both operands and checks their types as BinOp.compute does, while
+// conditions and operands of int operators check each operand as executeInt and executeBoolean do.
+public class JitCompiler {
+    private static final String CLASS_NAME = "jit/CompiledScript";
+    private static final String METHOD_NAME = "run";
+    private static final String METHOD_DESCRIPTOR = "([Ljava/lang/Object;Linterpreter/Environment;)Ljava/lang/Object;";
+    private static final String RUNTIME = "jit/JitRuntime";
+    private static final String ENVIRONMENT = "interpreter/Environment";
+    private static final String BINARY_INT = "(Ljava/lang/Object;Ljava/lang/Object;)I";
+    private static final String BINARY_BOOLEAN = "(Ljava/lang/Object;Ljava/lang/Object;)Z";
+    // HotSpot will not compile methods over 8000 bytes of bytecode, so long scripts are split into small segments
+    private static final int SEGMENT_SIZE = 1000;
+    // Locals 0 and 1 hold the named variables and the environment
+    private static final int FIRST_LOCAL = 2;
+
+    // Static types of compiled expressions
+    private static final int OBJECT = 0;
+    private static final int INT = 1;
+    private static final int BOOLEAN = 2;
+
+    private static final int ACONST_NULL = 0x01;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD = 0x19;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int AALOAD = 0x32;
+    private static final int ISTORE = 0x36;
+    private static final int ASTORE = 0x3a;
+    private static final int AASTORE = 0x53;
+    private static final int POP = 0x57;
+    private static final int DUP = 0x59;
+    private static final int IADD = 0x60;
+    private static final int ISUB = 0x64;
+    private static final int IMUL = 0x68;
+    private static final int IDIV = 0x6c;
+    private static final int INEG = 0x74;
+    private static final int IAND = 0x7e;
+    private static final int IOR = 0x80;
+    private static final int IXOR = 0x82;
+    private static final int IFEQ = 0x99;
+    private static final int IF_ICMPEQ = 0x9f;
+    private static final int IF_ICMPNE = 0xa0;
+    private static final int IF_ICMPLT = 0xa1;
+    private static final int IF_ICMPGE = 0xa2;
+    private static final int IF_ICMPGT = 0xa3;
+    private static final int IF_ICMPLE = 0xa4;
+    private static final int GOTO = 0xa7;
+    private static final int ARETURN = 0xb0;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int ATHROW = 0xbf;
+    private static final int WIDE = 0xc4;
+
+    private final boolean typed;
+    private final ClassFileWriter classFile = new ClassFileWriter();
+    private final List<ClassFileWriter.Method> methods = new ArrayList<>();
+    private final List<String> slotNames = new ArrayList<>();
+    private final Map<Integer, Variable> frameVariables = new HashMap<>();
+    private final Map<String, Variable> namedVariables = new HashMap<>();
+
+    // State of the method being compiled
+    private byte[] code = new byte[256];
+    private int size;
+    private int stackDepth;
+    private int maxStackDepth;
+    private int maxLocals;
+    private final Map<Variable, Integer> locals = new LinkedHashMap<>();
+    private final Set<Variable> assigned = new HashSet<>();
+    // Variables that are defined on every path to the current position, so reads need no check
+    private Set<Variable> defined = new HashSet<>();
+
+    private JitCompiler(boolean typed) {
+        this.typed = typed;
+    }
+
+    public static CompiledProgram compile(AST program) {
+        return compile(program, true);
+    }
+
+    private static CompiledProgram compile(AST program, boolean typed) {
+        JitCompiler compiler = new JitCompiler(typed);
+        compiler.inferTypes(program);
+        if (program instanceof Compound) {
+            compiler.compileSegments(program.getChildren());
+        } else {
+            compiler.beginMethod();
+            compiler.emitObject(program);
+            compiler.finishMethod(METHOD_NAME);
+        }
+        return compiler.define(() -> compile(program, false));
+    }
+
+    // Compiles the remainder of a running loop, entered at its condition check; update may be null
+    public static CompiledProgram compileLoop(AST condition, AST body, AST update) {
+        return compileLoop(condition, body, update, true);
+    }
+
+    private static CompiledProgram compileLoop(AST condition, AST body, AST update, boolean typed) {
+        JitCompiler compiler = new JitCompiler(typed);
+        compiler.inferTypes(condition, body, update);
+        compiler.beginMethod();
+        compiler.emitLoop(condition, body, update);
+        compiler.emit(ACONST_NULL, 1);
+        compiler.finishMethod(METHOD_NAME);
+        return compiler.define(() -> compileLoop(condition, body, update, false));
+    }
+
+    private void compileSegments(List<AST> statements) {
+        List<String> segments = new ArrayList<>();
+        int i = 0;
+        do {
+            beginMethod();
+            while (i < statements.size() && size < SEGMENT_SIZE) {
+                AST statement = statements.get(i++);
+                if (i == statements.size()) {
+                    emitObject(statement);
+                } else {
+                    emitEffect(statement);
+                }
+            }
+            if (i < statements.size() || statements.isEmpty()) {
+                emit(ACONST_NULL, 1);
+            }
+            String segment = "segment" + segments.size();
+            finishMethod(i == statements.size() && segments.isEmpty() ? METHOD_NAME : segment);
+            segments.add(segment);
+        } while (i < statements.size());
+
+        if (segments.size() > 1) {
+            beginMethod();
+            for (int s = 0; s < segments.size(); s++) {
+                if (s > 0) {
+                    emit(POP, -1);
+                }
+                emit(ALOAD_0, 1);
+                emit(ALOAD_1, 1);
+                invokeStatic(CLASS_NAME, segments.get(s), METHOD_DESCRIPTOR, -1);
+            }
+            finishMethod(METHOD_NAME);
+        }
+    }
+
+    private void beginMethod() {
+        size = 0;
+        stackDepth = 0;
+        maxStackDepth = 0;
+        maxLocals = FIRST_LOCAL;
+        locals.clear();
+        assigned.clear();
+        defined = new HashSet<>();
+    }
+
+    // The body leaves the result on the stack. The variables it uses are loaded in front of it, and the
+    // ones it assigns are written back after it, and in a handler for any exception it throws.
+    private void finishMethod(String name) {
+        byte[] body = Arrays.copyOf(code, size);
+        size = 0;
+        stackDepth = 0;
+        for (Map.Entry<Variable, Integer> local : locals.entrySet()) {
+            emitLoad(local.getKey(), local.getValue());
+        }
+        int start = size;
+        for (byte b : body) {
+            writeByte(b);
+        }
+        int end = size;
+        stackDepth = 1;
+        emitWriteBack();
+        emit(ARETURN, -1);
+        int[] handler = null;
+        if (!assigned.isEmpty() && end > start) {
+            handler = new int[]{start, end, size};
+            int exception = maxLocals++;
+            stackDepth = 1;
+            storeLocal(ASTORE, exception);
+            emitWriteBack();
+            loadLocal(ALOAD, exception);
+            emit(ATHROW, -1);
+        }
+        if (size > 0xFFFF) {
+            throw new JitException("Statement too large for a single method");
+        }
+        methods.add(new ClassFileWriter.Method(name, METHOD_DESCRIPTOR, Arrays.copyOf(code, size), maxStackDepth, maxLocals, handler));
+    }
+
+    private CompiledProgram define(Supplier<CompiledProgram> untyped) {
+        byte[] bytes = classFile.toByteArray(CLASS_NAME, methods);
+        int[] intFrameSlots = intTypedIndexes(frameVariables.values());
+        int[] intSlots = intTypedIndexes(namedVariables.values());
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle entryPoint = lookup.findStatic(lookup.lookupClass(), METHOD_NAME,
+                    MethodType.methodType(Object.class, Object[].class, Environment.class));
+            return new CompiledProgram(entryPoint, slotNames.toArray(new String[0]),
+                    intFrameSlots, intSlots, untyped);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new JitException("Failed to define compiled program", e);
+        }
+    }
+
+    private static int[] intTypedIndexes(Collection<Variable> variables) {
+        int count = 0;
+        for (Variable variable : variables) {
+            if (variable.intTyped) {
+                count++;
+            }
+        }
+        int[] indexes = new int[count];
+        int i = 0;
+        for (Variable variable : variables) {
+            if (variable.intTyped) {
+                indexes[i++] = variable.index;
+            }
+        }
+        return indexes;
+    }
+
+    // A variable is held as an int when it is assigned at least once and every assignment stores an int,
+    // assuming the same of the variables the assigned expressions read
+    private void inferTypes(AST... roots) {
+        List<AST> assignments = new ArrayList<>();
+        for (AST root : roots) {
+            if (root != null) {
+                collectAssignments(root, assignments);
+            }
+        }
+        if (!typed) {
+            return;
+        }
+        for (AST assignment : assignments) {
+            variable(assignment).intTyped = true;
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (AST assignment : assignments) {
+                Variable variable = variable(assignment);
+                if (variable.intTyped && kind(assignedExpr(assignment)) != INT) {
+                    variable.intTyped = false;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private void collectAssignments(AST node, List<AST> assignments) {
+        if (node instanceof Assignment || node instanceof SlotAssignment) {
+            assignments.add(node);
+        }
+        for (AST child : node.getChildren()) {
+            collectAssignments(child, assignments);
+        }
+    }
+
+    private static AST assignedExpr(AST assignment) {
+        return assignment instanceof Assignment ? ((Assignment) assignment).getExpr() : ((SlotAssignment) assignment).getExpr();
+    }
+
+    private Variable variable(AST node) {
+        if (node instanceof SlotVar) {
+            return frameVariable(((SlotVar) node).getName(), ((SlotVar) node).getSlot());
+        } else if (node instanceof SlotAssignment) {
+            return frameVariable(((SlotAssignment) node).getVarName(), ((SlotAssignment) node).getSlot());
+        }
+        String name = node instanceof Var ? ((Var) node).getName() : ((Assignment) node).getVarName();
+        Variable variable = namedVariables.get(name);
+        if (variable == null) {
+            variable = new Variable(name, slotNames.size(), false);
+            slotNames.add(name);
+            namedVariables.put(name, variable);
+        }
+        return variable;
+    }
+
+    private Variable frameVariable(String name, int slot) {
+        Variable variable = frameVariables.get(slot);
+        if (variable == null) {
+            variable = new Variable(name, slot, true);
+            frameVariables.put(slot, variable);
+        }
+        return variable;
+    }
+
+    private static boolean isVariable(AST node) {
+        return node instanceof SlotVar || node instanceof Var || node instanceof SlotAssignment || node instanceof Assignment;
+    }
+
+    // The static type of the value emitValue leaves on the stack
+    private int kind(AST node) {
+        if (node instanceof MemoNode) {
+            return kind(((MemoNode) node).getExpr());
+        } else if (node instanceof parser.AST.Integer) {
+            return INT;
+        } else if (node instanceof parser.AST.Boolean) {
+            return BOOLEAN;
+        } else if (isVariable(node)) {
+            return variable(node).intTyped ? INT : OBJECT;
+        } else if (node instanceof UnaryOp) {
+            return ((UnaryOp) node).getOp() == TokenType.MINUS ? INT : BOOLEAN;
+        } else if (node instanceof BinOp) {
+            BinOp binOp = (BinOp) node;
+            switch (binOp.getOp()) {
+                case PLUS:
+                    return kind(binOp.getLeft()) == INT && kind(binOp.getRight()) == INT ? INT : OBJECT;
+                case MINUS:
+                case MULT:
+                case DIV:
+                    return INT;
+                default:
+                    return BOOLEAN;
+            }
+        }
+        return OBJECT;
+    }
+
+    private void emitObject(AST node) {
+        box(emitValue(node));
+    }
+
+    // Evaluates the node as execute does and returns the kind of the result
+    private int emitValue(AST node) {
+        if (node instanceof MemoNode) {
+            // Compiled code evaluates memoized expressions directly
+            return emitValue(((MemoNode) node).getExpr());
+        } else if (node instanceof parser.AST.Integer) {
+            pushInt(((parser.AST.Integer) node).getValue());
+            return INT;
+        } else if (node instanceof parser.AST.Boolean) {
+            pushInt(((parser.AST.Boolean) node).getValue() ? 1 : 0);
+            return BOOLEAN;
+        } else if (node instanceof StringNode) {
+            emitConstant(classFile.string(((StringNode) node).getValue()));
+            return OBJECT;
+        } else if (node instanceof SlotVar || node instanceof Var) {
+            return emitRead(variable(node));
+        } else if (node instanceof SlotAssignment || node instanceof Assignment) {
+            return emitAssignment(node, true);
+        } else if (node instanceof BinOp) {
+            return emitBinOp((BinOp) node);
+        } else if (node instanceof UnaryOp) {
+            return emitUnaryOp((UnaryOp) node);
+        } else if (node instanceof IfElse) {
+            emitIfElse((IfElse) node, true);
+            return OBJECT;
+        } else if (node instanceof Compound) {
+            List<AST> children = node.getChildren();
+            if (children.isEmpty()) {
+                emit(ACONST_NULL, 1);
+            }
+            for (int i = 0; i < children.size(); i++) {
+                if (i < children.size() - 1) {
+                    emitEffect(children.get(i));
+                } else {
+                    emitObject(children.get(i));
+                }
+            }
+            return OBJECT;
+        } else if (node instanceof Print || node instanceof While || node instanceof For) {
+            emitEffect(node);
+            emit(ACONST_NULL, 1);
+            return OBJECT;
+        }
+        throw new JitException("Cannot compile node: " + node.getClass().getSimpleName());
+    }
+
+    // Evaluates the node for its side effects only
+    private void emitEffect(AST node) {
+        if (node instanceof SlotAssignment || node instanceof Assignment) {
+            emitAssignment(node, false);
+        } else if (node instanceof Print) {
+            emitObject(((Print) node).getExpr());
+            emit(ALOAD_1, 1);
+            invokeStatic(RUNTIME, "print", "(Ljava/lang/Object;Linterpreter/Environment;)V", -2);
+        } else if (node instanceof IfElse) {
+            emitIfElse((IfElse) node, false);
+        } else if (node instanceof While) {
+            While loop = (While) node;
+            emitLoop(loop.getCondition(), loop.getBody(), null);
+        } else if (node instanceof For) {
+            For loop = (For) node;
+            emitEffect(loop.getInit());
+            emitLoop(loop.getCondition(), loop.getBody(), loop.getUpdate());
+        } else if (node instanceof Compound) {
+            for (AST child : node.getChildren()) {
+                emitEffect(child);
+            }
+        } else {
+            emitValue(node);
+            emit(POP, -1);
+        }
+    }
+
+    // Evaluates the node as executeInt does
+    private void emitInt(AST node) {
+        if (node instanceof parser.AST.Integer) {
+            pushInt(((parser.AST.Integer) node).getValue());
+        } else if (node instanceof BinOp && arithmeticOpcode(((BinOp) node).getOp()) != 0 && BinOp.yieldsInt(node)) {
+            BinOp binOp = (BinOp) node;
+            emitInt(binOp.getLeft());
+            emitInt(binOp.getRight());
+            emit(arithmeticOpcode(binOp.getOp()), -1);
+        } else if (node instanceof UnaryOp && ((UnaryOp) node).getOp() == TokenType.MINUS && BinOp.yieldsInt(node)) {
+            emitInt(((UnaryOp) node).getExpr());
+            emit(INEG, 0);
+        } else {
+            int kind = emitValue(node);
+            if (kind != INT) {
+                box(kind);
+                invokeStatic(RUNTIME, "toInt", "(Ljava/lang/Object;)I", 0);
+            }
+        }
+    }
+
+    // Evaluates the node as executeBoolean does
+    private void emitBoolean(AST node) {
+        if (node instanceof parser.AST.Boolean) {
+            pushInt(((parser.AST.Boolean) node).getValue() ? 1 : 0);
+            return;
+        } else if (node instanceof UnaryOp && ((UnaryOp) node).getOp() == TokenType.NOT && BinOp.yieldsBoolean(node)) {
+            emitBoolean(((UnaryOp) node).getExpr());
+            pushInt(1);
+            emit(IXOR, -1);
+            return;
+        } else if (node instanceof BinOp && BinOp.yieldsBoolean(node)) {
+            BinOp binOp = (BinOp) node;
+            switch (binOp.getOp()) {
+                case EQ:
+                case NEQ:
+                    emitEquals(binOp);
+                    return;
+                case LT:
+                case GT:
+                case LTE:
+                case GTE:
+                    emitInt(binOp.getLeft());
+                    emitInt(binOp.getRight());
+                    emitCompare(compareOpcode(binOp.getOp()));
+                    return;
+                case AND:
+                case OR:
+                    emitBoolean(binOp.getLeft());
+                    emitBoolean(binOp.getRight());
+                    emit(binOp.getOp() == TokenType.AND ? IAND : IOR, -1);
+                    return;
+                default:
+                    break;
+            }
+        }
+        int kind = emitValue(node);
+        if (kind != BOOLEAN) {
+            box(kind);
+            invokeStatic(RUNTIME, "toBoolean", "(Ljava/lang/Object;)Z", 0);
+        }
+    }
+
+    private int emitBinOp(BinOp binOp) {
+        AST left = binOp.getLeft();
+        AST right = binOp.getRight();
+        boolean ints = kind(left) == INT && kind(right) == INT;
+        switch (binOp.getOp()) {
+            case PLUS:
+                if (ints) {
+                    emitValue(left);
+                    emitValue(right);
+                    emit(IADD, -1);
+                    return INT;
+                }
+                emitObject(left);
+                emitObject(right);
+                invokeStatic(RUNTIME, "add", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", -1);
+                return OBJECT;
+            case MINUS:
+            case MULT:
+            case DIV:
+                if (ints) {
+                    emitValue(left);
+                    emitValue(right);
+                    emit(arithmeticOpcode(binOp.getOp()), -1);
+                } else {
+                    emitObject(left);
+                    emitObject(right);
+                    invokeStatic(RUNTIME, runtimeName(binOp.getOp()), BINARY_INT, -1);
+                }
+                return INT;
+            case LT:
+            case GT:
+            case LTE:
+            case GTE:
+                if (ints) {
+                    emitValue(left);
+                    emitValue(right);
+                    emitCompare(compareOpcode(binOp.getOp()));
+                } else {
+                    emitObject(left);
+                    emitObject(right);
+                    invokeStatic(RUNTIME, runtimeName(binOp.getOp()), BINARY_BOOLEAN, -1);
+                }
+                return BOOLEAN;
+            case EQ:
+            case NEQ:
+                emitEquals(binOp);
+                return BOOLEAN;
+            case AND:
+            case OR:
+                if (kind(left) == BOOLEAN && kind(right) == BOOLEAN) {
+                    emitValue(left);
+                    emitValue(right);
+                    emit(binOp.getOp() == TokenType.AND ? IAND : IOR, -1);
+                } else {
+                    emitObject(left);
+                    emitObject(right);
+                    invokeStatic(RUNTIME, runtimeName(binOp.getOp()), BINARY_BOOLEAN, -1);
+                }
+                return BOOLEAN;
+            default:
+                throw new JitException("Unknown operator: " + binOp.getOp());
+        }
+    }
+
+    // Equality compares both operands' values in every context
+    private void emitEquals(BinOp binOp) {
+        AST left = binOp.getLeft();
+        AST right = binOp.getRight();
+        boolean eq = binOp.getOp() == TokenType.EQ;
+        if (kind(left) == kind(right) && kind(left) != OBJECT) {
+            emitValue(left);
+            emitValue(right);
+            emitCompare(eq ? IF_ICMPEQ : IF_ICMPNE);
+        } else {
+            emitObject(left);
+            emitObject(right);
+            invokeStatic(RUNTIME, "equal", BINARY_BOOLEAN, -1);
+            if (!eq) {
+                pushInt(1);
+                emit(IXOR, -1);
+            }
+        }
+    }
+
+    private int emitUnaryOp(UnaryOp unaryOp) {
+        AST expr = unaryOp.getExpr();
+        switch (unaryOp.getOp()) {
+            case MINUS:
+                if (kind(expr) == INT) {
+                    emitValue(expr);
+                    emit(INEG, 0);
+                } else {
+                    emitObject(expr);
+                    invokeStatic(RUNTIME, "negate", "(Ljava/lang/Object;)I", 0);
+                }
+                return INT;
+            case NOT:
+                if (kind(expr) == BOOLEAN) {
+                    emitValue(expr);
+                    pushInt(1);
+                    emit(IXOR, -1);
+                } else {
+                    emitObject(expr);
+                    invokeStatic(RUNTIME, "not", "(Ljava/lang/Object;)Z", 0);
+                }
+                return BOOLEAN;
+            default:
+                throw new JitException("Unknown operator: " + unaryOp.getOp());
+        }
+    }
+
+    private int emitRead(Variable variable) {
+        int local = local(variable);
+        if (variable.intTyped) {
+            loadLocal(ILOAD, local);
+            if (!defined.contains(variable)) {
+                loadLocal(ILOAD, local + 1);
+                emitConstant(classFile.string(variable.name));
+                invokeStatic(RUNTIME, "checkDefined", "(IZLjava/lang/String;)I", -2);
+            }
+        } else {
+            loadLocal(ALOAD, local);
+            if (!defined.contains(variable)) {
+                emitConstant(classFile.string(variable.name));
+                invokeStatic(RUNTIME, "checkDefined", "(Ljava/lang/Object;Ljava/lang/String;)Ljava/lang/Object;", -1);
+            }
+        }
+        // Reads past this one are only reached if it succeeded
+        defined.add(variable);
+        return variable.intTyped ? INT : OBJECT;
+    }
+
+    private int emitAssignment(AST assignment, boolean value) {
+        Variable variable = variable(assignment);
+        int local = local(variable);
+        if (variable.intTyped) {
+            emitValue(assignedExpr(assignment));
+            if (value) {
+                emit(DUP, 1);
+            }
+            storeLocal(ISTORE, local);
+            if (!defined.contains(variable)) {
+                pushInt(1);
+                storeLocal(ISTORE, local + 1);
+            }
+        } else {
+            emitObject(assignedExpr(assignment));
+            if (value) {
+                emit(DUP, 1);
+            }
+            storeLocal(ASTORE, local);
+        }
+        assigned.add(variable);
+        defined.add(variable);
+        return variable.intTyped ? INT : OBJECT;
+    }
+
+    private void emitIfElse(IfElse ifElse, boolean value) {
+        emitBoolean(ifElse.getCondition());
+        int elseJump = emitJump(IFEQ, -1);
+        Set<Variable> entry = new HashSet<>(defined);
+        if (value) {
+            emitObject(ifElse.getIfBody());
+        } else {
+            emitEffect(ifElse.getIfBody());
+        }
+        int endJump = emitJump(GOTO, 0);
+        if (value) {
+            stackDepth--;
+        }
+        Set<Variable> afterIf = defined;
+        defined = entry;
+        patchJump(elseJump);
+        if (value) {
+            emitObject(ifElse.getElseBody());
+        } else {
+            emitEffect(ifElse.getElseBody());
+        }
+        patchJump(endJump);
+        defined.retainAll(afterIf);
+    }
+
+    private void emitLoop(AST condition, AST body, AST update) {
+        int start = size;
+        emitBoolean(condition);
+        int exitJump = emitJump(IFEQ, -1);
+        // The body may not run, so only what the condition defines is known after the loop
+        Set<Variable> afterCondition = new HashSet<>(defined);
+        emitEffect(body);
+        if (update != null) {
+            emitEffect(update);
+        }
+        defined = afterCondition;
+        int backJump = emitJump(GOTO, 0);
+        patchJump(backJump, start);
+        patchJump(exitJump);
+    }
+
+    private void emitLoad(Variable variable, int local) {
+        if (variable.frame) {
+            emit(ALOAD_1, 1);
+            pushInt(variable.index);
+            invokeVirtual(ENVIRONMENT, "getSlot", "(I)Ljava/lang/Object;", -1);
+        } else {
+            emit(ALOAD_0, 1);
+            pushInt(variable.index);
+            emit(AALOAD, -1);
+        }
+        if (variable.intTyped) {
+            emit(DUP, 1);
+            invokeStatic(RUNTIME, "intValue", "(Ljava/lang/Object;)I", 0);
+            storeLocal(ISTORE, local);
+            invokeStatic(RUNTIME, "isDefined", "(Ljava/lang/Object;)Z", 0);
+            storeLocal(ISTORE, local + 1);
+        } else {
+            storeLocal(ASTORE, local);
+        }
+    }
+
+    private void emitWriteBack() {
+        for (Map.Entry<Variable, Integer> local : locals.entrySet()) {
+            Variable variable = local.getKey();
+            if (!assigned.contains(variable)) {
+                continue;
+            }
+            emit(variable.frame ? ALOAD_1 : ALOAD_0, 1);
+            pushInt(variable.index);
+            if (variable.intTyped) {
+                loadLocal(ILOAD, local.getValue());
+                loadLocal(ILOAD, local.getValue() + 1);
+                invokeStatic(RUNTIME, "box", "(IZ)Ljava/lang/Object;", -1);
+            } else {
+                loadLocal(ALOAD, local.getValue());
+            }
+            if (variable.frame) {
+                invokeVirtual(ENVIRONMENT, "setSlot", "(ILjava/lang/Object;)V", -3);
+            } else {
+                emit(AASTORE, -3);
+            }
+        }
+    }
+
+    private int local(Variable variable) {
+        Integer local = locals.get(variable);
+        if (local == null) {
+            local = maxLocals;
+            maxLocals += variable.intTyped ? 2 : 1;
+            if (maxLocals > 0xFFFF) {
+                throw new JitException("Too many variables");
+            }
+            locals.put(variable, local);
+        }
+        return local;
+    }
+
+    private void box(int kind) {
+        if (kind == INT) {
+            invokeStatic("java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;", 0);
+        } else if (kind == BOOLEAN) {
+            invokeStatic("java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", 0);
+        }
+    }
+
+    private static int arithmeticOpcode(TokenType op) {
+        switch (op) {
+            case PLUS:
+                return IADD;
+            case MINUS:
+                return ISUB;
+            case MULT:
+                return IMUL;
+            case DIV:
+                return IDIV;
+            default:
+                return 0;
+        }
+    }
+
+    private static int compareOpcode(TokenType op) {
+        switch (op) {
+            case LT:
+                return IF_ICMPLT;
+            case GT:
+                return IF_ICMPGT;
+            case LTE:
+                return IF_ICMPLE;
+            case GTE:
+                return IF_ICMPGE;
+            default:
+                throw new JitException("Unknown operator: " + op);
+        }
+    }
+
+    private static String runtimeName(TokenType op) {
+        switch (op) {
+            case MINUS:
+                return "subtract";
+            case MULT:
+                return "multiply";
+            case DIV:
+                return "divide";
+            case LT:
+                return "lessThan";
+            case GT:
+                return "greaterThan";
+            case LTE:
+                return "lessEqual";
+            case GTE:
+                return "greaterEqual";
+            case AND:
+                return "and";
+            case OR:
+                return "or";
+            default:
+                throw new JitException("Unknown operator: " + op);
+        }
+    }
+
+    // Turns two ints on the stack into 0 or 1
+    private void emitCompare(int opcode) {
+        int trueJump = emitJump(opcode, -2);
+        pushInt(0);
+        int endJump = emitJump(GOTO, 0);
+        stackDepth--;
+        patchJump(trueJump);
+        pushInt(1);
+        patchJump(endJump);
+    }
+
+    private void loadLocal(int opcode, int local) {
+        localInstruction(opcode, local, 1);
+    }
+
+    private void storeLocal(int opcode, int local) {
+        localInstruction(opcode, local, -1);
+    }
+
+    private void localInstruction(int opcode, int local, int stackEffect) {
+        if (local > 0xFF) {
+            writeByte(WIDE);
+            emit(opcode, stackEffect);
+            writeShort(local);
+        } else {
+            emit(opcode, stackEffect);
+            writeByte(local);
+        }
+    }
+
+    private void pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            emit(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            emit(BIPUSH, 1);
+            writeByte(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            emit(SIPUSH, 1);
+            writeShort(value);
+        } else {
+            emitConstant(classFile.integer(value));
+        }
+    }
+
+    private void emitConstant(int index) {
+        emit(LDC_W, 1);
+        writeShort(index);
+    }
+
+    private void invokeStatic(String owner, String name, String descriptor, int stackEffect) {
+        emit(INVOKESTATIC, stackEffect);
+        writeShort(classFile.methodRef(owner, name, descriptor));
+    }
+
+    private void invokeVirtual(String owner, String name, String descriptor, int stackEffect) {
+        emit(INVOKEVIRTUAL, stackEffect);
+        writeShort(classFile.methodRef(owner, name, descriptor));
+    }
+
+    private int emitJump(int opcode, int stackEffect) {
+        int position = size;
+        emit(opcode, stackEffect);
+        writeShort(0);
+        return position;
+    }
+
+    private void patchJump(int position) {
+        patchJump(position, size);
+    }
+
+    private void patchJump(int position, int target) {
+        int offset = target - position;
+        if (offset > Short.MAX_VALUE || offset < Short.MIN_VALUE) {
+            throw new JitException("Branch offset too large");
+        }
+        code[position + 1] = (byte) (offset >> 8);
+        code[position + 2] = (byte) offset;
+    }
+
+    private void emit(int opcode, int stackEffect) {
+        writeByte(opcode);
+        stackDepth += stackEffect;
+        maxStackDepth = Math.max(maxStackDepth, stackDepth);
+    }
+
+    private void writeByte(int value) {
+        if (size == code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[size++] = (byte) value;
+    }
+
+    private void writeShort(int value) {
+        writeByte(value >> 8);
+        writeByte(value);
+    }
+
+    // A global the compiled code reads or assigns: a slot of the environment's frame, or a variable
+    // looked up by name, passed in the slots array at index
+    private static class Variable {
+        final String name;
+        final int index;
+        final boolean frame;
+        boolean intTyped;
+
+        Variable(String name, int index, boolean frame) {
+            this.name = name;
+            this.index = index;
+            this.frame = frame;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package jit;
+
+public class JitException extends RuntimeException {
+    public JitException(String message) {
+        super(message);
+    }
+
+    public JitException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,164 @@
+package jit;
+
+import interpreter.ArrayValue;
+import interpreter.Environment;
+import interpreter.MapValue;
+import interpreter.Rope;
+
+// Helpers called from compiled code. Language errors are reported with the exception types and messages
+// of the tree walker: the operators mirror BinOp.compute and UnaryOp.compute, and toInt and toBoolean
+// mirror AST.executeInt and AST.executeBoolean.
+public final class JitRuntime {
+    private static final Object UNDEFINED = Environment.UNDEFINED;
+
+    private JitRuntime() {
+    }
+
+    public static Object checkDefined(Object value, String name) {
+        if (value == UNDEFINED) {
+            throw undefined(name);
+        }
+        return value;
+    }
+
+    public static int checkDefined(int value, boolean defined, String name) {
+        if (!defined) {
+            throw undefined(name);
+        }
+        return value;
+    }
+
+    // Variables typed as ints are held as a value and a defined flag
+    public static int intValue(Object value) {
+        return value instanceof Integer ? (Integer) value : 0;
+    }
+
+    public static boolean isDefined(Object value) {
+        return value != UNDEFINED;
+    }
+
+    public static Object box(int value, boolean defined) {
+        return defined ? (Object) value : UNDEFINED;
+    }
+
+    public static int toInt(Object value) {
+        if (value instanceof Integer) {
+            return (Integer) value;
+        }
+        throw new RuntimeException(String.format("Expected Integer but got %s", typeName(value)));
+    }
+
+    public static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw new RuntimeException(String.format("Expected Boolean but got %s", typeName(value)));
+    }
+
+    public static Object add(Object left, Object right) {
+        if (Rope.isString(left) || Rope.isString(right)) {
+            return Rope.concat(left, right);
+        } else if (left instanceof Integer && right instanceof Integer) {
+            return (int) left + (int) right;
+        }
+        throw invalidTypes("+", left, right);
+    }
+
+    public static int subtract(Object left, Object right) {
+        checkInts("-", left, right);
+        return (int) left - (int) right;
+    }
+
+    public static int multiply(Object left, Object right) {
+        checkInts("*", left, right);
+        return (int) left * (int) right;
+    }
+
+    public static int divide(Object left, Object right) {
+        checkInts("/", left, right);
+        return (int) left / (int) right;
+    }
+
+    public static boolean lessThan(Object left, Object right) {
+        checkInts("<", left, right);
+        return (int) left < (int) right;
+    }
+
+    public static boolean greaterThan(Object left, Object right) {
+        checkInts(">", left, right);
+        return (int) left > (int) right;
+    }
+
+    public static boolean lessEqual(Object left, Object right) {
+        checkInts("<=", left, right);
+        return (int) left <= (int) right;
+    }
+
+    public static boolean greaterEqual(Object left, Object right) {
+        checkInts(">=", left, right);
+        return (int) left >= (int) right;
+    }
+
+    public static boolean and(Object left, Object right) {
+        checkBooleans("&&", left, right);
+        return (boolean) left && (boolean) right;
+    }
+
+    public static boolean or(Object left, Object right) {
+        checkBooleans("||", left, right);
+        return (boolean) left || (boolean) right;
+    }
+
+    public static boolean equal(Object left, Object right) {
+        return Rope.valueEquals(left, right);
+    }
+
+    public static int negate(Object value) {
+        if (value instanceof Integer) {
+            return -(int) value;
+        }
+        throw new RuntimeException("Cannot negate non-integer value");
+    }
+
+    public static boolean not(Object value) {
+        if (value instanceof Boolean) {
+            return !(boolean) value;
+        }
+        throw new RuntimeException("Cannot negate non-boolean value");
+    }
+
+    public static void print(Object value, Environment env) {
+        env.getOutput().println(value);
+    }
+
+    private static void checkInts(String op, Object left, Object right) {
+        if (!(left instanceof Integer && right instanceof Integer)) {
+            throw invalidTypes(op, left, right);
+        }
+    }
+
+    private static void checkBooleans(String op, Object left, Object right) {
+        if (!(left instanceof Boolean && right instanceof Boolean)) {
+            throw invalidTypes(op, left, right);
+        }
+    }
+
+    private static RuntimeException undefined(String name) {
+        return new RuntimeException("Variable not defined: " + name);
+    }
+
+    private static RuntimeException invalidTypes(String op, Object left, Object right) {
+        return new RuntimeException(String.format("Invalid types for '%s' operator: %s, %s", op, typeName(left), typeName(right)));
+    }
+
+    private static String typeName(Object value) {
+        if (value instanceof Rope) {
+            return "String";
+        } else if (value instanceof ArrayValue) {
+            return "Array";
+        } else if (value instanceof MapValue) {
+            return "Map";
+        }
+        return value == null ? "null" : value.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,270 @@
+package lexer;
+
+import metrics.Allocations;
+import metrics.LexEvent;
+import metrics.PhaseMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class CompactLexer {
+    private static final LongAdder SOURCE_BYTES = PhaseMetrics.LEX.counter("sourceBytes");
+    private static final LongAdder TOKENS = PhaseMetrics.LEX.counter("tokens");
+
+    private final ByteBuffer input;
+    private final int length;
+    private final InternTable internTable = new InternTable();
+    private final TokenType[] keywords;
+    private final int firstLine;
+    private int position;
+    // Bytes read beyond the UTF-16 chars they decode to. Token and line offsets are counted in chars, as
+    // the Lexer counts them, so both report the same columns.
+    private int skew;
+
+    public CompactLexer(ByteBuffer input) {
+        this(input, 1);
+    }
+
+    // For lexing a fragment of a larger source that starts at the beginning of the given line
+    public CompactLexer(ByteBuffer input, int firstLine) {
+        this.input = input;
+        this.firstLine = firstLine;
+        this.length = input.limit();
+        this.keywords = new TokenType[Lexer.KEYWORDS.size() + 2];
+        // Keywords occupy the first intern ids so a name lookup doubles as keyword recognition
+        for (Map.Entry<String, TokenType> keyword : Lexer.KEYWORDS.entrySet()) {
+            keywords[internTable.intern(keyword.getKey())] = keyword.getValue();
+        }
+        keywords[internTable.intern("true")] = TokenType.BOOLEAN;
+        keywords[internTable.intern("false")] = TokenType.BOOLEAN;
+    }
+
+    public CompactLexer(String input) {
+        this(ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static TokenBuffer map(Path path) throws IOException {
+        return new CompactLexer(mapFile(path)).tokenize();
+    }
+
+    public static MappedByteBuffer mapFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private int current() {
+        return position < length ? input.get(position) : 0;
+    }
+
+    private int peek() {
+        return position + 1 < length ? input.get(position + 1) : 0;
+    }
+
+    // Decodes the UTF-8 sequence at the current position to the char a Reader would give the Lexer, so
+    // both lexers test the same chars. Code points outside the BMP decode to their high surrogate, which
+    // no character class accepts, and malformed input decodes to U+FFFD.
+    private char currentChar() {
+        int lead = current();
+        if (lead >= 0) {
+            return (char) lead;
+        }
+        int width = charWidth();
+        if (width == 1) {
+            return '\uFFFD';
+        }
+        int codePoint = lead & (0x7f >> width);
+        for (int i = 1; i < width; i++) {
+            codePoint = (codePoint << 6) | (input.get(position + i) & 0x3f);
+        }
+        return codePoint > 0xffff ? Character.highSurrogate(codePoint) : (char) codePoint;
+    }
+
+    // Length in bytes of the sequence at the current position, 1 for ASCII and malformed bytes
+    private int charWidth() {
+        int lead = current() & 0xff;
+        int width = lead >= 0xf0 ? 4 : lead >= 0xe0 ? 3 : lead >= 0xc0 ? 2 : 1;
+        for (int i = 1; i < width; i++) {
+            if (position + i >= length || (input.get(position + i) & 0xc0) != 0x80) {
+                return 1;
+            }
+        }
+        return width;
+    }
+
+    private void skipChar() {
+        if (current() >= 0) {
+            position++;
+            return;
+        }
+        int width = charWidth();
+        // A four-byte sequence is a surrogate pair, two chars
+        skew += width == 4 ? 2 : width - 1;
+        position += width;
+    }
+
+    private int offset() {
+        return position - skew;
+    }
+
+    private void integer(TokenBuffer tokens) {
+        int start = offset();
+        int value = 0;
+        char c;
+        while (Lexer.isDigit(c = currentChar())) {
+            value = Math.addExact(Math.multiplyExact(value, 10), Lexer.digitValue(c));
+            skipChar();
+        }
+        tokens.add(TokenType.NUMBER, start, offset() - start, value);
+    }
+
+    private void string(TokenBuffer tokens) {
+        int start = offset();
+        int contentStart = position + 1;
+        position++;
+        while (position < length && current() != '"') {
+            if (current() == '\n') {
+                tokens.addLineStart(offset() + 1);
+            }
+            skipChar();
+        }
+        int id = internTable.intern(input, contentStart, position - contentStart);
+        position++;
+        tokens.add(TokenType.STRING, start, Math.min(position, length) - skew - start, id);
+    }
+
+    private void identifier(TokenBuffer tokens) {
+        int byteStart = position;
+        int start = offset();
+        while (Lexer.isLetterOrDigit(currentChar())) {
+            skipChar();
+        }
+        int id = internTable.intern(input, byteStart, position - byteStart);
+        TokenType keyword = id < keywords.length ? keywords[id] : null;
+        if (keyword == TokenType.BOOLEAN) {
+            tokens.add(TokenType.BOOLEAN, start, offset() - start, internTable.get(id).equals("true") ? 1 : 0);
+        } else if (keyword != null) {
+            tokens.add(keyword, start, offset() - start, 0);
+        } else {
+            tokens.add(TokenType.IDENTIFIER, start, offset() - start, id);
+        }
+    }
+
+    private void single(TokenBuffer tokens, TokenType type) {
+        tokens.add(type, offset(), 1, 0);
+        position++;
+    }
+
+    private void twoChar(TokenBuffer tokens, char second, TokenType matched, TokenType single) {
+        if (peek() == second) {
+            tokens.add(matched, offset(), 2, 0);
+            position += 2;
+        } else {
+            single(tokens, single);
+        }
+    }
+
+    private void requireTwoChar(TokenBuffer tokens, char second, TokenType matched) {
+        char first = (char) current();
+        if (peek() != second) {
+            throw new RuntimeException("Invalid syntax: expected " + first + second + ", but found " + first);
+        }
+        tokens.add(matched, offset(), 2, 0);
+        position += 2;
+    }
+
+    public TokenBuffer tokenize() {
+        LexEvent event = new LexEvent();
+        long allocated = Allocations.currentThread();
+        event.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            TokenBuffer tokens = scan();
+            event.sourceBytes = length;
+            event.tokenCount = tokens.size();
+            SOURCE_BYTES.add(length);
+            TOKENS.add(tokens.size());
+            failed = false;
+            return tokens;
+        } finally {
+            event.allocatedBytes = Allocations.currentThread() - allocated;
+            PhaseMetrics.LEX.record(System.nanoTime() - start, event.allocatedBytes, failed);
+            event.commit();
+        }
+    }
+
+    private TokenBuffer scan() {
+        TokenBuffer tokens = new TokenBuffer(internTable, firstLine);
+        while (position < length) {
+            char c = currentChar();
+            if (Lexer.isWhitespace(c)) {
+                if (c == '\n') {
+                    tokens.addLineStart(offset() + 1);
+                }
+                skipChar();
+            } else if (c == '/' && peek() == '/') {
+                while (position < length && current() != '\n') {
+                    skipChar();
+                }
+            } else if (Lexer.isDigit(c)) {
+                integer(tokens);
+            } else if (Lexer.isLetter(c)) {
+                identifier(tokens);
+            } else if (c == '"') {
+                string(tokens);
+            } else if (c == '+') {
+                single(tokens, TokenType.PLUS);
+            } else if (c == '-') {
+                single(tokens, TokenType.MINUS);
+            } else if (c == '*') {
+                single(tokens, TokenType.MULT);
+            } else if (c == '/') {
+                single(tokens, TokenType.DIV);
+            } else if (c == '(') {
+                single(tokens, TokenType.LPAREN);
+            } else if (c == ')') {
+                single(tokens, TokenType.RPAREN);
+            } else if (c == ';') {
+                single(tokens, TokenType.SEMI);
+            } else if (c == '[') {
+                single(tokens, TokenType.LBRACKET);
+            } else if (c == ']') {
+                single(tokens, TokenType.RBRACKET);
+            } else if (c == ',') {
+                single(tokens, TokenType.COMMA);
+            } else if (c == '.') {
+                single(tokens, TokenType.DOT);
+            } else if (c == '{') {
+                single(tokens, TokenType.LEFT_BRACE);
+            } else if (c == '}') {
+                single(tokens, TokenType.RIGHT_BRACE);
+            } else if (c == ':') {
+                single(tokens, TokenType.COLON);
+            } else if (c == '=') {
+                twoChar(tokens, '=', TokenType.EQ, TokenType.EQUAL);
+            } else if (c == '!') {
+                requireTwoChar(tokens, '=', TokenType.NEQ);
+            } else if (c == '<') {
+                twoChar(tokens, '=', TokenType.LTE, TokenType.LT);
+            } else if (c == '>') {
+                twoChar(tokens, '=', TokenType.GTE, TokenType.GT);
+            } else if (c == '&') {
+                requireTwoChar(tokens, '&', TokenType.AND);
+            } else if (c == '|') {
+                requireTwoChar(tokens, '|', TokenType.OR);
+            } else {
+                throw new RuntimeException("Invalid syntax: " + c);
+            }
+        }
+        tokens.add(TokenType.EOF, length - skew, 0, 0);
+        return tokens;
+    }
+}
@@ -0,0 +1,96 @@
+package lexer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public class InternTable {
+    private int[] table = new int[256];
+    private int[] hashes = new int[16];
+    private byte[][] keys = new byte[16][];
+    private String[] strings = new String[16];
+    private int size;
+
+    public InternTable() {
+        Arrays.fill(table, -1);
+    }
+
+    public int intern(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return intern(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    public int intern(ByteBuffer source, int start, int length) {
+        int hash = hash(source, start, length);
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != -1) {
+            int id = table[slot];
+            if (hashes[id] == hash && matches(keys[id], source, start, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = add(hash, source, start, length);
+        table[slot] = id;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    public String get(int id) {
+        return strings[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int add(int hash, ByteBuffer source, int start, int length) {
+        if (size == keys.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            keys = Arrays.copyOf(keys, size * 2);
+            strings = Arrays.copyOf(strings, size * 2);
+        }
+        byte[] key = new byte[length];
+        source.get(start, key, 0, length);
+        hashes[size] = hash;
+        keys[size] = key;
+        strings[size] = new String(key, StandardCharsets.UTF_8);
+        return size++;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        Arrays.fill(table, -1);
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (table[slot] != -1) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id;
+        }
+    }
+
+    private static int hash(ByteBuffer source, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + source.get(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(byte[] key, ByteBuffer source, int start, int length) {
+        if (key.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key[i] != source.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,41 +1,144 @@
 package lexer;
 
+import metrics.Allocations;
+import metrics.LexEvent;
+import metrics.PhaseMetrics;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Lexer implements TokenSource {
+    private static final int BUFFER_SIZE = 8192;
+    private static final LongAdder SOURCE_CHARS = PhaseMetrics.LEX.counter("sourceBytes");
+    private static final LongAdder TOKENS = PhaseMetrics.LEX.counter("tokens");
+    static final Map<String, TokenType> KEYWORDS = new HashMap<>();
 
-public class Lexer {
-    private final String input;
-    private int position;
+    static {
+        KEYWORDS.put("let", TokenType.LET);
+        KEYWORDS.put("print", TokenType.PRINT);
+        KEYWORDS.put("if", TokenType.IF);
+        KEYWORDS.put("then", TokenType.THEN);
+        KEYWORDS.put("else", TokenType.ELSE);
+        KEYWORDS.put("not", TokenType.NOT);
+        KEYWORDS.put("while", TokenType.WHILE);
+        KEYWORDS.put("for", TokenType.FOR);
+        KEYWORDS.put("fun", TokenType.FUN);
+        KEYWORDS.put("return", TokenType.RETURN);
+    }
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int limit;
+    private int index;
     private char currentChar;
+    private int line = 1;
+    private int column;
+    private int offset = -1;
+    private int tokenLine;
+    private int tokenColumn;
+    private int tokenOffset;
+    private long charsRead;
+    private int tokenCount;
 
     public Lexer(String input) {
-        this.input = input;
-        position = 0;
-        currentChar = input.charAt(position);
+        this(new StringReader(input));
+    }
+
+    public Lexer(Reader reader) {
+        this(reader, 1, 1);
+    }
+
+    // For lexing a fragment of a larger source: positions are reported as if the reader started at line:column
+    public Lexer(Reader reader, int line, int column) {
+        this.reader = reader;
+        this.line = line;
+        this.column = column - 1;
+        advance();
     }
 
     private void advance() {
-        position++;
-        if (position < input.length()) {
-            currentChar = input.charAt(position);
-        } else {
-            currentChar = '\0';
+        if (currentChar == '\n') {
+            line++;
+            column = 0;
+        }
+        if (index >= limit) {
+            fill();
+        }
+        currentChar = index < limit ? buffer[index++] : '\0';
+        column++;
+        offset++;
+    }
+
+    private char peek() {
+        if (index >= limit) {
+            fill();
+        }
+        return index < limit ? buffer[index] : '\0';
+    }
+
+    private void fill() {
+        try {
+            int read = reader.read(buffer, 0, buffer.length);
+            limit = Math.max(read, 0);
+            charsRead += limit;
+            index = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Character classes of the language, shared with CompactLexer so both lexers accept the same sources.
+    // ASCII is tested inline and agrees with Character.
+    static boolean isWhitespace(char c) {
+        if (c < 128) {
+            return c == ' ' || (c >= '\t' && c <= '\r') || (c >= 0x1c && c <= 0x1f);
         }
+        return Character.isWhitespace(c);
+    }
+
+    static boolean isDigit(char c) {
+        return c < 128 ? c >= '0' && c <= '9' : Character.isDigit(c);
+    }
+
+    // Value of a character isDigit accepts. Other scripts' digits count by their own zero, as Integer.parseInt does.
+    static int digitValue(char c) {
+        return c < 128 ? c - '0' : Character.digit(c, 10);
+    }
+
+    static boolean isLetter(char c) {
+        return c < 128 ? (c | 0x20) >= 'a' && (c | 0x20) <= 'z' : Character.isLetter(c);
+    }
+
+    static boolean isLetterOrDigit(char c) {
+        return c < 128 ? isLetter(c) || isDigit(c) : Character.isLetterOrDigit(c);
     }
 
     private void skipWhiteSpace() {
-        while (currentChar != '\0' && Character.isWhitespace(currentChar)) {
+        while (currentChar != '\0' && isWhitespace(currentChar)) {
+            advance();
+        }
+    }
+
+    private void skipComment() {
+        while (currentChar != '\0' && currentChar != '\n') {
             advance();
         }
     }
 
     private int integer() {
-        StringBuilder result = new StringBuilder();
-        while (currentChar != '\0' && Character.isDigit(currentChar)) {
-            result.append(currentChar);
+        int result = 0;
+        while (currentChar != '\0' && isDigit(currentChar)) {
+            result = Math.addExact(Math.multiplyExact(result, 10), digitValue(currentChar));
             advance();
         }
-        return Integer.parseInt(result.toString());
+        return result;
     }
 
     private String string() {
@@ -51,113 +154,160 @@ public class Lexer {
 
     private Token identifier() {
         StringBuilder result = new StringBuilder();
-        while (currentChar != '\0' && Character.isLetterOrDigit(currentChar)) {
+        while (currentChar != '\0' && isLetterOrDigit(currentChar)) {
             result.append(currentChar);
             advance();
         }
         String identifier = result.toString();
-        return new Token(TokenType.IDENTIFIER, identifier);
+        if (identifier.equals("true") || identifier.equals("false")) {
+            return token(TokenType.BOOLEAN, Boolean.parseBoolean(identifier));
+        }
+        TokenType keyword = KEYWORDS.get(identifier);
+        if (keyword != null) {
+            return token(keyword);
+        }
+        return token(TokenType.IDENTIFIER, identifier);
     }
 
-    public List<Token> tokenize() {
-        List<Token> tokens = new ArrayList<>();
+    private Token twoCharToken(char second, TokenType matched, TokenType single) {
+        advance();
+        if (currentChar == second) {
+            advance();
+            return token(matched);
+        }
+        return token(single);
+    }
+
+    private Token requireTwoCharToken(char second, TokenType matched) {
+        char first = currentChar;
+        advance();
+        if (currentChar != second) {
+            throw new RuntimeException("Invalid syntax: expected " + first + second + ", but found " + first);
+        }
+        advance();
+        return token(matched);
+    }
+
+    private Token singleCharToken(TokenType type) {
+        advance();
+        return token(type);
+    }
+
+    private Token token(TokenType type) {
+        return token(type, null);
+    }
+
+    private Token token(TokenType type, Object value) {
+        return new Token(type, value, tokenLine, tokenColumn);
+    }
+
+    @Override
+    public Token getNextToken() {
+        tokenCount++;
+        return nextToken();
+    }
+
+    private Token nextToken() {
         while (currentChar != '\0') {
-            if (Character.isWhitespace(currentChar)) {
+            tokenLine = line;
+            tokenColumn = column;
+            tokenOffset = offset;
+            if (isWhitespace(currentChar)) {
                 skipWhiteSpace();
-            } else if (Character.isDigit(currentChar)) {
-                int value = integer();
-                tokens.add(new Token(TokenType.INTEGER, value));
+            } else if (currentChar == '/' && peek() == '/') {
+                skipComment();
+            } else if (isDigit(currentChar)) {
+                return token(TokenType.NUMBER, integer());
+            } else if (isLetter(currentChar)) {
+                return identifier();
+            } else if (currentChar == '"') {
+                return token(TokenType.STRING, string());
             } else if (currentChar == '+') {
-                tokens.add(new Token(TokenType.PLUS));
-                advance();
+                return singleCharToken(TokenType.PLUS);
             } else if (currentChar == '-') {
-                tokens.add(new Token(TokenType.MINUS));
-                advance();
+                return singleCharToken(TokenType.MINUS);
             } else if (currentChar == '*') {
-                tokens.add(new Token(TokenType.MULT));
-                advance();
+                return singleCharToken(TokenType.MULT);
             } else if (currentChar == '/') {
-                tokens.add(new Token(TokenType.DIV));
-                advance();
+                return singleCharToken(TokenType.DIV);
             } else if (currentChar == '(') {
-                tokens.add(new Token(TokenType.LPAREN));
-                advance();
+                return singleCharToken(TokenType.LPAREN);
             } else if (currentChar == ')') {
-                tokens.add(new Token(TokenType.RPAREN));
-                advance();
+                return singleCharToken(TokenType.RPAREN);
+            } else if (currentChar == ';') {
+                return singleCharToken(TokenType.SEMI);
+            } else if (currentChar == '[') {
+                return singleCharToken(TokenType.LBRACKET);
+            } else if (currentChar == ']') {
+                return singleCharToken(TokenType.RBRACKET);
+            } else if (currentChar == ',') {
+                return singleCharToken(TokenType.COMMA);
+            } else if (currentChar == '.') {
+                return singleCharToken(TokenType.DOT);
+            } else if (currentChar == '{') {
+                return singleCharToken(TokenType.LEFT_BRACE);
+            } else if (currentChar == '}') {
+                return singleCharToken(TokenType.RIGHT_BRACE);
+            } else if (currentChar == ':') {
+                return singleCharToken(TokenType.COLON);
             } else if (currentChar == '=') {
-                if (input.charAt(position + 1) == '=') {
-                    tokens.add(new Token(TokenType.EQ));
-                    advance();
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.ASSIGN));
-                    advance();
-                }
+                return twoCharToken('=', TokenType.EQ, TokenType.EQUAL);
             } else if (currentChar == '!') {
-                if (input.charAt(position + 1) == '=') {
-                    tokens.add(new Token(TokenType.NEQ));
-                    advance();
-                    advance();
-                } else {
-                    throw new RuntimeException("Invalid syntax: expected !=, but found !");
-                }
+                return requireTwoCharToken('=', TokenType.NEQ);
             } else if (currentChar == '<') {
-                if (input.charAt(position + 1) == '=') {
-                    tokens.add(new Token(TokenType.LTE));
-                    advance();
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.LT));
-                    advance();
-                }
+                return twoCharToken('=', TokenType.LTE, TokenType.LT);
             } else if (currentChar == '>') {
-                if (input.charAt(position + 1) == '=') {
-                    tokens.add(new Token(TokenType.GTE));
-                    advance();
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.GT));
-                    advance();
-                }
+                return twoCharToken('=', TokenType.GTE, TokenType.GT);
             } else if (currentChar == '&') {
-                if (input.charAt(position + 1) == '&') {
-                    tokens.add(new Token(TokenType.AND));
-                    advance();
-                    advance();
-                } else {
-                    throw new RuntimeException("Invalid syntax: expected &&, but found &");
-                }
+                return requireTwoCharToken('&', TokenType.AND);
             } else if (currentChar == '|') {
-                if (input.charAt(position + 1) == '|') {
-                    tokens.add(new Token(TokenType.OR));
-                    advance();
-                    advance();
-                } else {
-                    throw new RuntimeException("Invalid syntax: expected ||, but found |");
-                }
-            } else if (currentChar == '!') {
-                if (input.charAt(position + 1) == '=') {
-                    tokens.add(new Token(TokenType.NEQ));
-                    advance();
-                    advance();
-                } else {
-                    throw new RuntimeException("Invalid syntax: expected !=, but found !");
-                }
-            } else if (currentChar == '=') {
-                if (input.charAt(position + 1) == '=') {
-                    tokens.add(new Token(TokenType.EQ));
-                    advance();
-                    advance();
-                } else {
-                    tokens.add(new Token(TokenType.ASSIGN));
-                    advance();
-                }
+                return requireTwoCharToken('|', TokenType.OR);
             } else {
                 throw new RuntimeException("Invalid syntax: " + currentChar);
             }
         }
-        tokens.add(new Token(TokenType.EOF));
-        return tokens;
+        return new Token(TokenType.EOF, null, line, column);
+    }
+
+    // Offset of the most recently returned token, counted in chars from the start of the reader
+    public int getTokenOffset() {
+        return tokenOffset;
+    }
+
+    // For a lexer the parser pulls tokens from rather than tokenize: reports the whole stream as one lex. Its
+    // tokens were lexed inside the parser's calls, so their time and allocation are reported as parsing.
+    public void reportStream(LexEvent event, boolean failed) {
+        event.sourceBytes = charsRead;
+        event.tokenCount = tokenCount;
+        SOURCE_CHARS.add(charsRead);
+        TOKENS.add(tokenCount);
+        PhaseMetrics.LEX.recordUntimed(failed);
+        event.commit();
+    }
+
+    public List<Token> tokenize() {
+        LexEvent event = new LexEvent();
+        long allocated = Allocations.currentThread();
+        event.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+        List<Token> tokens = new ArrayList<>();
+        try {
+            Token token;
+            do {
+                token = getNextToken();
+                tokens.add(token);
+            } while (token.getType() != TokenType.EOF);
+            failed = false;
+            return tokens;
+        } finally {
+            event.sourceBytes = charsRead;
+            event.tokenCount = tokens.size();
+            event.allocatedBytes = Allocations.currentThread() - allocated;
+            SOURCE_CHARS.add(charsRead);
+            TOKENS.add(tokens.size());
+            PhaseMetrics.LEX.record(System.nanoTime() - start, event.allocatedBytes, failed);
+            event.commit();
+        }
     }
 }
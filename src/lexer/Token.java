@@ -3,15 +3,22 @@ package lexer;
 public class Token {
     private final TokenType type;
     private final Object value;
+    private final int line;
+    private final int column;
 
     public Token(TokenType type) {
-        this.type = type;
-        this.value = null;
+        this(type, null);
     }
 
     public Token(TokenType type, Object value) {
+        this(type, value, 0, 0);
+    }
+
+    public Token(TokenType type, Object value, int line, int column) {
         this.type = type;
         this.value = value;
+        this.line = line;
+        this.column = column;
     }
 
     public TokenType getType() {
@@ -22,6 +29,14 @@ public class Token {
         return value;
     }
 
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
     @Override
     public String toString() {
         if (value != null) {
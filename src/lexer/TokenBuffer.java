@@ -0,0 +1,127 @@
+package lexer;
+
+import java.util.Arrays;
+
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final InternTable internTable;
+    private int[] types = new int[1024];
+    private int[] starts = new int[1024];
+    private int[] lengths = new int[1024];
+    private int[] values = new int[1024];
+    private int size;
+    // Offsets where each line begins; line and column of a token are derived from its start offset
+    private int[] lineStarts = new int[256];
+    private int lineCount = 1;
+    // Line number of the first line, for buffers that hold a fragment of a larger source
+    private final int firstLine;
+
+    public TokenBuffer(InternTable internTable) {
+        this(internTable, 1);
+    }
+
+    public TokenBuffer(InternTable internTable, int firstLine) {
+        this.internTable = internTable;
+        this.firstLine = firstLine;
+    }
+
+    public void add(TokenType type, int start, int length, int value) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        types[size] = type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        values[size] = value;
+        size++;
+    }
+
+    public void addLineStart(int offset) {
+        if (lineCount == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+        }
+        lineStarts[lineCount++] = offset;
+    }
+
+    public int getLine(int index) {
+        return lineIndex(index) + firstLine;
+    }
+
+    public int getColumn(int index) {
+        return starts[index] - lineStarts[lineIndex(index)] + 1;
+    }
+
+    private int lineIndex(int index) {
+        int search = Arrays.binarySearch(lineStarts, 0, lineCount, starts[index]);
+        return search >= 0 ? search : -search - 2;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType getType(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getLength(int index) {
+        return lengths[index];
+    }
+
+    public int getIntValue(int index) {
+        return values[index];
+    }
+
+    public String getText(int index) {
+        return internTable.get(values[index]);
+    }
+
+    public InternTable getInternTable() {
+        return internTable;
+    }
+
+    public TokenSource cursor() {
+        return new Cursor();
+    }
+
+    // Hands the packed tokens to the parser; names come from the intern table, so equal names share one String
+    private class Cursor implements TokenSource {
+        private int position;
+        private int line = 1;
+
+        @Override
+        public Token getNextToken() {
+            if (position >= size) {
+                return new Token(TokenType.EOF, null, line + firstLine - 1, 1);
+            }
+            int index = position++;
+            // Tokens are visited in source order, so the current line only ever moves forward
+            while (line < lineCount && lineStarts[line] <= starts[index]) {
+                line++;
+            }
+            int column = starts[index] - lineStarts[line - 1] + 1;
+            int sourceLine = line + firstLine - 1;
+            TokenType type = TYPES[types[index]];
+            switch (type) {
+                case NUMBER:
+                    return new Token(TokenType.NUMBER, values[index], sourceLine, column);
+                case BOOLEAN:
+                    return new Token(TokenType.BOOLEAN, values[index] == 1, sourceLine, column);
+                case IDENTIFIER:
+                case STRING:
+                    return new Token(type, internTable.get(values[index]), sourceLine, column);
+                default:
+                    return new Token(type, null, sourceLine, column);
+            }
+        }
+    }
+}
@@ -0,0 +1,5 @@
+package lexer;
+
+public interface TokenSource {
+    Token getNextToken();
+}
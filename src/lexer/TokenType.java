@@ -16,13 +16,15 @@ public enum TokenType {
 
     // Keywords
     AND, CLASS, ELSE, FALSE, FUN, FOR, IF, NIL, OR, NOT,
-    PRINT, RETURN, SUPER, THIS, TRUE, VAR, WHILE, LET,
+    PRINT, RETURN, SUPER, THIS, TRUE, VAR, WHILE, LET, THEN,
 
     // Additional tokens
     DIV, // '/'
     LPAREN, // '('
     RPAREN, // ')'
     SEMI, // ';'
+    LBRACKET, // '['
+    RBRACKET, // ']'
     MULT, // '*',
     EQ,         // ==
     NEQ,        // !=
@@ -30,6 +32,7 @@ public enum TokenType {
     GT,         // >
     LTE,        // <=
     GTE,        // >=
+    COLON,      // :
 
     // End of file
     EOF
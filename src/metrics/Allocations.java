@@ -0,0 +1,26 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+
+public final class Allocations {
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private Allocations() {
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                return sunThreads;
+            }
+        }
+        return null;
+    }
+
+    // Bytes allocated by the calling thread so far, or 0 when the JVM does not track it
+    public static long currentThread() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+}
@@ -0,0 +1,26 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("openwz.Execute")
+@Label("Execute")
+@Category("OpenWZ")
+@Description("Executing a program")
+@StackTrace(false)
+public class ExecuteEvent extends Event {
+    @Label("Allocated")
+    @DataAmount
+    public long allocatedBytes;
+
+    @Label("Engine")
+    public String engine;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,35 @@
+package metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+public class InterpreterMetrics implements InterpreterMetricsMXBean {
+    private final MetricsRegistry registry;
+
+    public InterpreterMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        return registry.getCounters();
+    }
+
+    @Override
+    public Map<String, Double> getLatenciesMillis() {
+        Map<String, Double> latencies = new TreeMap<>();
+        registry.getHistograms().forEach((name, histogram) -> {
+            latencies.put(name + ".mean", histogram.getMeanNanos() / 1e6);
+            latencies.put(name + ".p50", histogram.getPercentileNanos(50) / 1e6);
+            latencies.put(name + ".p90", histogram.getPercentileNanos(90) / 1e6);
+            latencies.put(name + ".p99", histogram.getPercentileNanos(99) / 1e6);
+            latencies.put(name + ".max", histogram.getMaxNanos() / 1e6);
+        });
+        return latencies;
+    }
+
+    @Override
+    public void reset() {
+        registry.reset();
+    }
+}
@@ -0,0 +1,12 @@
+package metrics;
+
+import java.util.Map;
+
+public interface InterpreterMetricsMXBean {
+    Map<String, Long> getCounters();
+
+    // Keyed by histogram name and statistic, e.g. "execute.latency.p99"
+    Map<String, Double> getLatenciesMillis();
+
+    void reset();
+}
@@ -0,0 +1,27 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("openwz.Lex")
+@Label("Lex")
+@Category("OpenWZ")
+@Description("Lexing one source into tokens")
+@StackTrace(false)
+public class LexEvent extends Event {
+    @Label("Source Size")
+    @DataAmount
+    public long sourceBytes;
+
+    @Label("Tokens")
+    public long tokenCount;
+
+    @Label("Allocated")
+    @DataAmount
+    public long allocatedBytes;
+}
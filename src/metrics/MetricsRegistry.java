@@ -0,0 +1,72 @@
+package metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MetricsRegistry {
+    public static final String OBJECT_NAME = "openwz:type=Interpreter";
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private boolean registered;
+
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    public Map<String, Long> getCounters() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        return snapshot;
+    }
+
+    public Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    public void reset() {
+        counters.values().forEach(LongAdder::reset);
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+
+    // Publishes this registry on the platform MBean server; a no-op after the first call
+    public synchronized void registerMBean() {
+        if (registered) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new InterpreterMetrics(this), new ObjectName(OBJECT_NAME));
+            registered = true;
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register " + OBJECT_NAME, e);
+        }
+    }
+
+    public String report() {
+        StringBuilder sb = new StringBuilder();
+        getCounters().forEach((name, value) -> sb.append(String.format("%-28s %d%n", name, value)));
+        getHistograms().forEach((name, histogram) -> sb.append(String.format(
+                "%-28s count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms%n",
+                name, histogram.getCount(), histogram.getMeanNanos() / 1e6,
+                histogram.getPercentileNanos(50) / 1e6, histogram.getPercentileNanos(99) / 1e6,
+                histogram.getMaxNanos() / 1e6)));
+        return sb.toString();
+    }
+}
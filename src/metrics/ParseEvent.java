@@ -0,0 +1,26 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("openwz.Parse")
+@Label("Parse")
+@Category("OpenWZ")
+@Description("Parsing a token stream into an AST")
+@StackTrace(false)
+public class ParseEvent extends Event {
+    @Label("Tokens")
+    public long tokenCount;
+
+    @Label("Nodes")
+    public long nodeCount;
+
+    @Label("Allocated")
+    @DataAmount
+    public long allocatedBytes;
+}
@@ -0,0 +1,46 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Cumulative counters and a latency histogram for one interpreter phase, registered in the global registry
+public class PhaseMetrics {
+    public static final PhaseMetrics LEX = new PhaseMetrics("lex");
+    public static final PhaseMetrics PARSE = new PhaseMetrics("parse");
+    public static final PhaseMetrics EXECUTE = new PhaseMetrics("execute");
+
+    private final String name;
+    private final LongAdder runs;
+    private final LongAdder failures;
+    private final LongAdder allocatedBytes;
+    private final LatencyHistogram latency;
+
+    private PhaseMetrics(String name) {
+        MetricsRegistry registry = MetricsRegistry.global();
+        this.name = name;
+        this.runs = registry.counter(name + ".runs");
+        this.failures = registry.counter(name + ".failures");
+        this.allocatedBytes = registry.counter(name + ".allocatedBytes");
+        this.latency = registry.histogram(name + ".latency");
+    }
+
+    public void record(long nanos, long allocated, boolean failed) {
+        runs.increment();
+        if (failed) {
+            failures.increment();
+        }
+        allocatedBytes.add(allocated);
+        latency.record(nanos);
+    }
+
+    // A run whose time and allocation are reported with another phase: counted, but kept out of the histogram
+    public void recordUntimed(boolean failed) {
+        runs.increment();
+        if (failed) {
+            failures.increment();
+        }
+    }
+
+    public LongAdder counter(String suffix) {
+        return MetricsRegistry.global().counter(name + "." + suffix);
+    }
+}
@@ -0,0 +1,88 @@
+package optimizer;
+
+import parser.AST.AST;
+import parser.AST.BinOp;
+import parser.AST.MemoNode;
+import parser.AST.SlotVar;
+import parser.AST.StringNode;
+import parser.AST.UnaryOp;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Wraps pure expressions over global slots and literals in MemoNodes. Runs on resolved programs, since
+// a memo compares the slots its expression reads.
+public class Memoizer {
+    // Smaller expressions cost about as much to evaluate as to check
+    static final int MIN_OPERATORS = 2;
+
+    // Operators in each pure subtree seen so far, or -1 for subtrees that are not pure
+    private final Map<AST, java.lang.Integer> operatorCounts = new IdentityHashMap<>();
+
+    private Memoizer() {
+    }
+
+    public static AST memoize(AST program) {
+        return new Memoizer().memoizeNode(program);
+    }
+
+    private AST memoizeNode(AST node) {
+        AST result = node;
+        List<AST> children = node.getChildren();
+        if (!children.isEmpty()) {
+            List<AST> memoized = new ArrayList<>(children.size());
+            boolean changed = false;
+            for (AST child : children) {
+                AST rewritten = memoizeNode(child);
+                memoized.add(rewritten);
+                changed |= rewritten != child;
+            }
+            if (changed) {
+                result = node.withChildren(memoized).withPositionOf(node);
+            }
+        }
+
+        int operators = countOperators(node);
+        operatorCounts.put(node, operators);
+        if (operators < MIN_OPERATORS) {
+            return result;
+        }
+        Set<java.lang.Integer> slots = new LinkedHashSet<>();
+        collectSlots(node, slots);
+        if (slots.isEmpty()) {
+            return result;
+        }
+        return new MemoNode(result, slots.stream().mapToInt(java.lang.Integer::intValue).toArray()).withPositionOf(node);
+    }
+
+    private int countOperators(AST node) {
+        if (node instanceof SlotVar || node instanceof parser.AST.Integer || node instanceof parser.AST.Boolean
+                || node instanceof StringNode) {
+            return 0;
+        } else if (!(node instanceof BinOp || node instanceof UnaryOp)) {
+            return -1;
+        }
+        int operators = 1;
+        for (AST child : node.getChildren()) {
+            int count = operatorCounts.get(child);
+            if (count < 0) {
+                return -1;
+            }
+            operators += count;
+        }
+        return operators;
+    }
+
+    private static void collectSlots(AST node, Set<java.lang.Integer> slots) {
+        if (node instanceof SlotVar) {
+            slots.add(((SlotVar) node).getSlot());
+        }
+        for (AST child : node.getChildren()) {
+            collectSlots(child, slots);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package optimizer;
+
+import interpreter.Rope;
+import parser.AST.AST;
+import parser.AST.BinOp;
+import parser.AST.Compound;
+import parser.AST.IfElse;
+import parser.AST.StringNode;
+import parser.AST.UnaryOp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Optimizer {
+    // Bump whenever a rewrite changes the tree produced for some source, so cached programs are rebuilt
+    public static final int VERSION = 2;
+
+    // Keyed on value and source position: nodes are shared only where they stand for the same source text,
+    // so the profiler and error reports still see every literal at its own position
+    private final Map<List<Object>, AST> literals = new HashMap<>();
+
+    public static AST optimize(AST program) {
+        return SubexpressionEliminator.eliminate(new Optimizer().optimizeNode(program));
+    }
+
+    private AST optimizeNode(AST node) {
+        if (isLiteral(node)) {
+            return intern(node);
+        }
+
+        List<AST> children = node.getChildren();
+        if (!children.isEmpty()) {
+            List<AST> optimized = new ArrayList<>(children.size());
+            boolean changed = false;
+            for (AST child : children) {
+                AST result = optimizeNode(child);
+                optimized.add(result);
+                changed |= result != child;
+            }
+            if (changed) {
+                node = node.withChildren(optimized).withPositionOf(node);
+            }
+        }
+
+        if (node instanceof BinOp) {
+            return foldBinOp((BinOp) node);
+        } else if (node instanceof UnaryOp) {
+            return foldUnaryOp((UnaryOp) node);
+        } else if (node instanceof IfElse) {
+            return eliminateBranch((IfElse) node);
+        } else if (node instanceof Compound) {
+            return flatten((Compound) node);
+        }
+        return node;
+    }
+
+    private AST foldBinOp(BinOp binOp) {
+        if (!isLiteral(binOp.getLeft()) || !isLiteral(binOp.getRight())) {
+            return binOp;
+        }
+        try {
+            return literal(binOp.compute(literalValue(binOp.getLeft()), literalValue(binOp.getRight())), binOp);
+        } catch (RuntimeException e) {
+            // Leave failing expressions such as 1 / 0 in place so they fail at runtime
+            return binOp;
+        }
+    }
+
+    private AST foldUnaryOp(UnaryOp unaryOp) {
+        if (!isLiteral(unaryOp.getExpr())) {
+            return unaryOp;
+        }
+        try {
+            return literal(unaryOp.compute(literalValue(unaryOp.getExpr())), unaryOp);
+        } catch (RuntimeException e) {
+            return unaryOp;
+        }
+    }
+
+    private AST eliminateBranch(IfElse ifElse) {
+        AST condition = ifElse.getCondition();
+        if (condition instanceof parser.AST.Boolean) {
+            return ((parser.AST.Boolean) condition).getValue() ? ifElse.getIfBody() : ifElse.getElseBody();
+        }
+        return ifElse;
+    }
+
+    private AST flatten(Compound compound) {
+        boolean nested = false;
+        for (AST child : compound.getChildren()) {
+            nested |= child instanceof Compound;
+        }
+        if (!nested) {
+            return compound;
+        }
+        List<AST> flattened = new ArrayList<>();
+        for (AST child : compound.getChildren()) {
+            if (child instanceof Compound) {
+                flattened.addAll(child.getChildren());
+            } else {
+                flattened.add(child);
+            }
+        }
+        return compound.withChildren(flattened).withPositionOf(compound);
+    }
+
+    private static boolean isLiteral(AST node) {
+        return node instanceof parser.AST.Integer || node instanceof parser.AST.Boolean || node instanceof StringNode;
+    }
+
+    private static Object literalValue(AST node) {
+        if (node instanceof parser.AST.Integer) {
+            return ((parser.AST.Integer) node).getValue();
+        } else if (node instanceof parser.AST.Boolean) {
+            return ((parser.AST.Boolean) node).getValue();
+        } else {
+            return ((StringNode) node).getValue();
+        }
+    }
+
+    private AST intern(AST node) {
+        AST existing = literals.putIfAbsent(key(literalValue(node), node), node);
+        return existing != null ? existing : node;
+    }
+
+    // A folded expression becomes a literal at the expression's position
+    private AST literal(Object result, AST source) {
+        Object value = Rope.normalize(result);
+        List<Object> key = key(value, source);
+        AST existing = literals.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        AST node;
+        if (value instanceof Integer) {
+            node = new parser.AST.Integer((Integer) value);
+        } else if (value instanceof Boolean) {
+            node = new parser.AST.Boolean((Boolean) value);
+        } else if (value instanceof String) {
+            node = new StringNode((String) value);
+        } else {
+            throw new IllegalStateException("Cannot fold value of type " + value.getClass().getSimpleName());
+        }
+        node.withPositionOf(source);
+        literals.put(key, node);
+        return node;
+    }
+
+    private static List<Object> key(Object value, AST node) {
+        return List.of(value, node.getLine(), node.getColumn());
+    }
+}
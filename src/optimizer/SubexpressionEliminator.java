@@ -0,0 +1,307 @@
+package optimizer;
+
+import lexer.TokenType;
+import metrics.PhaseMetrics;
+import parser.AST.AST;
+import parser.AST.Array;
+import parser.AST.Assignment;
+import parser.AST.BinOp;
+import parser.AST.Compound;
+import parser.AST.For;
+import parser.AST.FunctionNode;
+import parser.AST.IfElse;
+import parser.AST.MethodCall;
+import parser.AST.Print;
+import parser.AST.StringNode;
+import parser.AST.UnaryOp;
+import parser.AST.Var;
+import parser.AST.While;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+// Finds repeated side-effect-free expressions over variables and literals and evaluates each one once.
+// The program is walked in evaluation order, keeping the expressions whose value is known on every path
+// to the current node. A repeat of one of them reads a hidden variable instead, and the first occurrence
+// stores its value there as it is computed, so nothing is evaluated earlier than before. An assignment
+// forgets the expressions that read its variable, and array or map updates and calls forget those whose
+// result depends on array or map contents. Branches, loop bodies and the right operand of && and || may
+// not run, so what they compute is forgotten when they end. Function bodies are left alone: their locals
+// already have frame slots.
+public class SubexpressionEliminator {
+    private static final String TEMP_PREFIX = "$cse";
+    // Pseudo variable read by + == != on values that may be arrays or maps, and written by anything that
+    // may change an array or map
+    private static final String HEAP = "[heap]";
+    private static final LongAdder ELIMINATED = PhaseMetrics.PARSE.counter("eliminatedSubexpressions");
+
+    private final Map<String, java.lang.Integer> numbers = new HashMap<>();
+    private final Map<AST, java.lang.Integer> nodeNumbers = new IdentityHashMap<>();
+    private final Map<java.lang.Integer, Definition> available = new HashMap<>();
+    private final Map<String, List<Definition>> readers = new HashMap<>();
+    // Undoes changes to the available expressions when a region that may not run ends
+    private final List<Runnable> undo = new ArrayList<>();
+    private final Map<AST, Definition> definitions = new IdentityHashMap<>();
+    private final Map<AST, Definition> uses = new IdentityHashMap<>();
+    private int temps;
+
+    private SubexpressionEliminator() {
+    }
+
+    public static AST eliminate(AST program) {
+        SubexpressionEliminator eliminator = new SubexpressionEliminator();
+        eliminator.visit(program);
+        if (eliminator.uses.isEmpty()) {
+            return program;
+        }
+        ELIMINATED.add(eliminator.uses.size());
+        return eliminator.rewrite(program);
+    }
+
+    private void visit(AST node) {
+        if (node instanceof FunctionNode) {
+            return;
+        }
+        int number = number(node);
+        if (number >= 0 && (node instanceof BinOp || node instanceof UnaryOp)) {
+            Definition definition = available.get(number);
+            if (definition != null) {
+                if (definition.temp == null) {
+                    definition.temp = TEMP_PREFIX + temps++;
+                }
+                uses.put(node, definition);
+                return;
+            }
+            visitOperands(node);
+            define(number, node);
+        } else if (node instanceof IfElse) {
+            IfElse ifElse = (IfElse) node;
+            visit(ifElse.getCondition());
+            visitConditionally(ifElse.getIfBody());
+            visitConditionally(ifElse.getElseBody());
+            forgetWrites(ifElse.getIfBody());
+            forgetWrites(ifElse.getElseBody());
+        } else if (node instanceof While) {
+            While loop = (While) node;
+            // Later iterations see the body's assignments, so nothing they change is known inside the loop
+            forgetWrites(loop);
+            int mark = undo.size();
+            visit(loop.getCondition());
+            visit(loop.getBody());
+            restore(mark);
+        } else if (node instanceof For) {
+            For loop = (For) node;
+            visit(loop.getInit());
+            forgetWrites(loop.getCondition());
+            forgetWrites(loop.getBody());
+            forgetWrites(loop.getUpdate());
+            int mark = undo.size();
+            visit(loop.getCondition());
+            visit(loop.getBody());
+            visit(loop.getUpdate());
+            restore(mark);
+        } else if (node instanceof BinOp || node instanceof UnaryOp || node instanceof Compound
+                || node instanceof Print || node instanceof Array || node instanceof Assignment
+                || node instanceof MethodCall) {
+            visitOperands(node);
+            if (node instanceof Assignment) {
+                forget(((Assignment) node).getVarName());
+            } else if (node instanceof MethodCall && isHeapWrite((MethodCall) node)) {
+                forget(HEAP);
+            }
+        } else {
+            // Calls, array updates and anything else: the order their operands run in is not assumed
+            for (AST child : node.getChildren()) {
+                visitConditionally(child);
+            }
+            forget(HEAP);
+        }
+    }
+
+    private void visitOperands(AST node) {
+        if (node instanceof BinOp && isShortCircuit(((BinOp) node).getOp())) {
+            visit(((BinOp) node).getLeft());
+            visitConditionally(((BinOp) node).getRight());
+            return;
+        }
+        for (AST child : node.getChildren()) {
+            visit(child);
+        }
+    }
+
+    private void visitConditionally(AST node) {
+        int mark = undo.size();
+        visit(node);
+        restore(mark);
+    }
+
+    private void restore(int mark) {
+        while (undo.size() > mark) {
+            undo.remove(undo.size() - 1).run();
+        }
+    }
+
+    private void define(int number, AST node) {
+        Definition definition = new Definition(number);
+        definitions.put(node, definition);
+        available.put(number, definition);
+        undo.add(() -> available.remove(number));
+        Set<String> names = new HashSet<>();
+        collectReads(node, names);
+        for (String name : names) {
+            readers.computeIfAbsent(name, key -> new ArrayList<>()).add(definition);
+        }
+    }
+
+    // Drops the available expressions that read name. Lists may still hold definitions that were dropped
+    // or undone another way, so only the live ones are touched.
+    private void forget(String name) {
+        List<Definition> reading = readers.get(name);
+        if (reading == null || reading.isEmpty()) {
+            return;
+        }
+        for (Definition definition : reading) {
+            if (available.get(definition.number) == definition) {
+                available.remove(definition.number);
+                undo.add(() -> available.put(definition.number, definition));
+            }
+        }
+        readers.put(name, new ArrayList<>());
+        undo.add(() -> readers.put(name, reading));
+    }
+
+    private void forgetWrites(AST node) {
+        Set<String> names = new HashSet<>();
+        collectWrites(node, names);
+        for (String name : names) {
+            forget(name);
+        }
+    }
+
+    private static void collectWrites(AST node, Set<String> names) {
+        if (node instanceof FunctionNode) {
+            return;
+        } else if (node instanceof Assignment) {
+            names.add(((Assignment) node).getVarName());
+        } else if (node instanceof MethodCall && isHeapWrite((MethodCall) node)) {
+            names.add(HEAP);
+        } else if (!isKnown(node)) {
+            names.add(HEAP);
+        }
+        for (AST child : node.getChildren()) {
+            collectWrites(child, names);
+        }
+    }
+
+    private static void collectReads(AST node, Set<String> names) {
+        if (node instanceof Var) {
+            names.add(((Var) node).getName());
+        } else if (node instanceof BinOp && readsHeap(((BinOp) node).getOp())) {
+            names.add(HEAP);
+        }
+        for (AST child : node.getChildren()) {
+            collectReads(child, names);
+        }
+    }
+
+    // Value number of a pure expression over variables and literals, or -1. Structurally equal
+    // expressions get the same number.
+    private int number(AST node) {
+        java.lang.Integer cached = nodeNumbers.get(node);
+        if (cached != null) {
+            return cached;
+        }
+        String key = null;
+        if (node instanceof Var) {
+            key = "v" + ((Var) node).getName();
+        } else if (node instanceof parser.AST.Integer) {
+            key = "i" + ((parser.AST.Integer) node).getValue();
+        } else if (node instanceof parser.AST.Boolean) {
+            key = "b" + ((parser.AST.Boolean) node).getValue();
+        } else if (node instanceof StringNode) {
+            key = "s" + ((StringNode) node).getValue();
+        } else if (node instanceof BinOp) {
+            BinOp binOp = (BinOp) node;
+            int left = number(binOp.getLeft());
+            int right = number(binOp.getRight());
+            if (left >= 0 && right >= 0) {
+                key = binOp.getOp() + " " + left + " " + right;
+            }
+        } else if (node instanceof UnaryOp) {
+            UnaryOp unaryOp = (UnaryOp) node;
+            int operand = number(unaryOp.getExpr());
+            if (operand >= 0) {
+                key = "u" + unaryOp.getOp() + " " + operand;
+            }
+        }
+        int number = key == null ? -1 : numbers.computeIfAbsent(key, k -> numbers.size());
+        nodeNumbers.put(node, number);
+        return number;
+    }
+
+    private AST rewrite(AST node) {
+        Definition use = uses.get(node);
+        if (use != null) {
+            return new Var(use.temp).withPositionOf(node);
+        }
+        if (node instanceof FunctionNode) {
+            return node;
+        }
+        AST result = node;
+        List<AST> children = node.getChildren();
+        if (!children.isEmpty()) {
+            List<AST> rewritten = new ArrayList<>(children.size());
+            boolean changed = false;
+            for (AST child : children) {
+                AST rewrittenChild = rewrite(child);
+                rewritten.add(rewrittenChild);
+                changed |= rewrittenChild != child;
+            }
+            if (changed) {
+                result = node.withChildren(rewritten).withPositionOf(node);
+            }
+        }
+        Definition definition = definitions.get(node);
+        if (definition != null && definition.temp != null) {
+            return new Assignment(definition.temp, result).withPositionOf(node);
+        }
+        return result;
+    }
+
+    private static boolean isKnown(AST node) {
+        return node instanceof BinOp || node instanceof UnaryOp || node instanceof Compound || node instanceof Print
+                || node instanceof Array || node instanceof Assignment || node instanceof MethodCall
+                || node instanceof IfElse || node instanceof While || node instanceof For || node instanceof Var
+                || node instanceof parser.AST.Integer || node instanceof parser.AST.Boolean
+                || node instanceof StringNode;
+    }
+
+    private static boolean isHeapWrite(MethodCall call) {
+        return call.getName().equals("append") || call.getName().equals("put");
+    }
+
+    // Concatenation formats and equality compares array and map contents
+    private static boolean readsHeap(TokenType op) {
+        return op == TokenType.PLUS || op == TokenType.EQ || op == TokenType.NEQ;
+    }
+
+    private static boolean isShortCircuit(TokenType op) {
+        return op == TokenType.AND || op == TokenType.OR;
+    }
+
+    private static final class Definition {
+        private final int number;
+        // Hidden variable holding the value, assigned once the expression is seen again
+        private String temp;
+
+        private Definition(int number) {
+            this.number = number;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package output;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Collects printed lines as characters and encodes them in bulk, writing to the channel once the
+// buffer fills up, once a line has waited flushInterval, or on flush()
+public class BufferedOutputSink implements OutputSink {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // Runs the timed flushes, so a line printed before a long computation or a wait is not held back
+    // until the next println
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "openwz-output-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static BufferedOutputSink standardOutput;
+
+    private final WritableByteChannel channel;
+    private final StringBuilder pending;
+    private final int bufferSize;
+    private final long flushInterval;
+    private final boolean lineFlush;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer bytes;
+    private boolean flushScheduled;
+
+    public BufferedOutputSink(WritableByteChannel channel, int bufferSize, long flushInterval, boolean lineFlush) {
+        this.channel = channel;
+        this.bufferSize = bufferSize;
+        this.flushInterval = flushInterval;
+        this.lineFlush = lineFlush;
+        this.pending = new StringBuilder(bufferSize);
+        this.bytes = ByteBuffer.allocate(bufferSize * 2);
+    }
+
+    public BufferedOutputSink(OutputStream out) {
+        this(Channels.newChannel(out), DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL, false);
+    }
+
+    // Writes every line as soon as it is printed, for interactive sessions
+    public static BufferedOutputSink lineFlushing(OutputStream out) {
+        return new BufferedOutputSink(Channels.newChannel(out), DEFAULT_BUFFER_SIZE, 0, true);
+    }
+
+    public static BufferedOutputSink toFile(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedOutputSink(channel, DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL, false);
+    }
+
+    // Shared by every interpreter that is not given its own sink; flushed when the JVM exits
+    public static synchronized BufferedOutputSink standardOutput() {
+        if (standardOutput == null) {
+            BufferedOutputSink sink = new BufferedOutputSink(new FileOutputStream(FileDescriptor.out));
+            Runtime.getRuntime().addShutdownHook(new Thread(sink::flush));
+            standardOutput = sink;
+        }
+        return standardOutput;
+    }
+
+    @Override
+    public synchronized void println(Object value) {
+        pending.append(value).append('\n');
+        if (lineFlush || pending.length() >= bufferSize || flushInterval <= 0) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            FLUSHER.schedule(this::scheduledFlush, flushInterval, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private synchronized void scheduledFlush() {
+        flushScheduled = false;
+        try {
+            flush();
+        } catch (UncheckedIOException e) {
+            // A broken channel fails the printing thread's next flush as well
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (pending.length() == 0) {
+            return;
+        }
+        CharBuffer chars = CharBuffer.wrap(pending);
+        try {
+            while (true) {
+                CoderResult result = encoder.encode(chars, bytes, true);
+                drain();
+                if (result.isUnderflow()) {
+                    break;
+                }
+            }
+            encoder.flush(bytes);
+            drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            encoder.reset();
+            pending.setLength(0);
+        }
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    public synchronized void close() {
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package output;
+
+public class MemoryOutputSink implements OutputSink {
+    private final StringBuilder buffer = new StringBuilder();
+
+    @Override
+    public synchronized void println(Object value) {
+        buffer.append(value).append('\n');
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    public synchronized String getText() {
+        return buffer.toString();
+    }
+
+    public synchronized void clear() {
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,7 @@
+package output;
+
+public interface OutputSink {
+    void println(Object value);
+
+    void flush();
+}
@@ -0,0 +1,106 @@
+package parallel;
+
+import lexer.TokenType;
+import parser.AST.AST;
+import parser.AST.Array;
+import parser.AST.ArrayAssignment;
+import parser.AST.ArrayVar;
+import parser.AST.BinOp;
+import parser.AST.Compound;
+import parser.AST.For;
+import parser.AST.FunctionNode;
+import parser.AST.IfElse;
+import parser.AST.MapNode;
+import parser.AST.MemoNode;
+import parser.AST.MethodCall;
+import parser.AST.Print;
+import parser.AST.SlotAssignment;
+import parser.AST.SlotVar;
+import parser.AST.StringNode;
+import parser.AST.UnaryOp;
+import parser.AST.While;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// The global variables a top-level statement may read and write. Array and map contents are tracked as
+// one shared resource, HEAP, since any variable may hold a reference to them. Statements that print are
+// outputs and keep their order. Statements the analysis cannot see through, such as calls, which run
+// arbitrary function bodies, or unresolved variables, which go through the environment's hash map, are
+// barriers and never overlap with another statement.
+public class AccessSet {
+    static final String HEAP = "[heap]";
+
+    private final Set<String> reads = new HashSet<>();
+    private final Set<String> writes = new HashSet<>();
+    private boolean output;
+    private boolean barrier;
+
+    private AccessSet() {
+    }
+
+    public static AccessSet of(AST statement) {
+        AccessSet access = new AccessSet();
+        access.collect(statement);
+        return access;
+    }
+
+    public Set<String> getReads() {
+        return reads;
+    }
+
+    public Set<String> getWrites() {
+        return writes;
+    }
+
+    public boolean isOutput() {
+        return output;
+    }
+
+    public boolean isBarrier() {
+        return barrier;
+    }
+
+    private void collect(AST node) {
+        if (barrier) {
+            return;
+        }
+        if (node instanceof SlotVar) {
+            reads.add(((SlotVar) node).getName());
+        } else if (node instanceof SlotAssignment) {
+            writes.add(((SlotAssignment) node).getVarName());
+        } else if (node instanceof FunctionNode) {
+            // The body only runs when called, and calls are barriers
+            return;
+        } else if (node instanceof ArrayVar) {
+            reads.add(HEAP);
+        } else if (node instanceof ArrayAssignment) {
+            writes.add(HEAP);
+        } else if (node instanceof MethodCall) {
+            String name = ((MethodCall) node).getName();
+            if (name.equals("append") || name.equals("put")) {
+                writes.add(HEAP);
+            } else {
+                reads.add(HEAP);
+            }
+        } else if (node instanceof BinOp) {
+            // Concatenation formats and equality compares array and map contents
+            TokenType op = ((BinOp) node).getOp();
+            if (op == TokenType.PLUS || op == TokenType.EQ || op == TokenType.NEQ) {
+                reads.add(HEAP);
+            }
+        } else if (node instanceof Print) {
+            output = true;
+            reads.add(HEAP);
+        } else if (!(node instanceof Compound || node instanceof IfElse || node instanceof While
+                || node instanceof For || node instanceof UnaryOp || node instanceof MemoNode || node instanceof Array || node instanceof MapNode
+                || node instanceof parser.AST.Integer || node instanceof parser.AST.Boolean
+                || node instanceof StringNode)) {
+            barrier = true;
+            return;
+        }
+        for (AST child : node.getChildren()) {
+            collect(child);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package parallel;
+
+import parser.AST.AST;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Orders the statements of a program by their accesses. A statement depends on the last earlier writer of
+// anything it reads or writes, and on every earlier reader of what it writes since that writer, so each
+// variable sees its reads and writes in source order. An output depends on all earlier statements, so
+// output and the first failure come in program order. Barriers split the program into segments; edges
+// never cross a barrier, since a barrier runs alone between the segments before and after it.
+public class DependencyGraph {
+    private final int size;
+    private final boolean[] barriers;
+    private final int[][] successors;
+    private final int[] predecessorCounts;
+
+    private DependencyGraph(int size) {
+        this.size = size;
+        this.barriers = new boolean[size];
+        this.successors = new int[size][];
+        this.predecessorCounts = new int[size];
+    }
+
+    public static DependencyGraph build(List<AST> statements) {
+        DependencyGraph graph = new DependencyGraph(statements.size());
+        List<List<java.lang.Integer>> successors = new ArrayList<>();
+        Map<String, java.lang.Integer> lastWriters = new HashMap<>();
+        Map<String, List<java.lang.Integer>> readersSinceWrite = new HashMap<>();
+        List<java.lang.Integer> sinceOutput = new ArrayList<>();
+        int lastOutput = -1;
+        for (int i = 0; i < statements.size(); i++) {
+            successors.add(new ArrayList<>());
+            AccessSet access = AccessSet.of(statements.get(i));
+            if (access.isBarrier()) {
+                graph.barriers[i] = true;
+                lastWriters.clear();
+                readersSinceWrite.clear();
+                sinceOutput.clear();
+                lastOutput = -1;
+                continue;
+            }
+
+            Set<java.lang.Integer> predecessors = new LinkedHashSet<>();
+            for (String name : access.getReads()) {
+                java.lang.Integer writer = lastWriters.get(name);
+                if (writer != null) {
+                    predecessors.add(writer);
+                }
+            }
+            for (String name : access.getWrites()) {
+                java.lang.Integer writer = lastWriters.get(name);
+                if (writer != null) {
+                    predecessors.add(writer);
+                }
+                predecessors.addAll(readersSinceWrite.getOrDefault(name, List.of()));
+            }
+            if (access.isOutput()) {
+                if (lastOutput >= 0) {
+                    predecessors.add(lastOutput);
+                }
+                predecessors.addAll(sinceOutput);
+            }
+            for (int predecessor : predecessors) {
+                successors.get(predecessor).add(i);
+            }
+            graph.predecessorCounts[i] = predecessors.size();
+
+            for (String name : access.getReads()) {
+                readersSinceWrite.computeIfAbsent(name, key -> new ArrayList<>()).add(i);
+            }
+            for (String name : access.getWrites()) {
+                lastWriters.put(name, i);
+                readersSinceWrite.remove(name);
+            }
+            if (access.isOutput()) {
+                lastOutput = i;
+                sinceOutput.clear();
+            } else {
+                sinceOutput.add(i);
+            }
+        }
+        for (int i = 0; i < graph.size; i++) {
+            graph.successors[i] = successors.get(i).stream().mapToInt(java.lang.Integer::intValue).toArray();
+        }
+        return graph;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isBarrier(int statement) {
+        return barriers[statement];
+    }
+
+    public int[] getSuccessors(int statement) {
+        return successors[statement];
+    }
+
+    public int getPredecessorCount(int statement) {
+        return predecessorCounts[statement];
+    }
+}
@@ -0,0 +1,154 @@
+package parallel;
+
+import metrics.PhaseMetrics;
+import parser.AST.AST;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Runs the statements of a program in dependency order on a fork-join pool. Each segment between barriers
+// starts with the statements that depend on nothing, and a statement is started by whichever predecessor
+// finishes last, so independent statements overlap while every variable sees the same reads and writes
+// as in sequential execution. Barriers run alone on the calling thread, which keeps its large stack for
+// deep recursion. A failed statement skips everything that depends on it, and the earliest failure is
+// rethrown once the segment settles. Independent statements after the failure may already have run.
+public class ParallelExecutor {
+    private static final LongAdder PARALLEL_STATEMENTS = PhaseMetrics.EXECUTE.counter("parallelStatements");
+
+    private final ForkJoinPool pool;
+
+    public ParallelExecutor() {
+        this(DefaultPool.POOL);
+    }
+
+    public ParallelExecutor(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // Runs each statement with engine, which is called from several threads at once. Returns the value of
+    // the last statement, like Compound.
+    public Object execute(List<AST> statements, DependencyGraph graph, Function<AST, Object> engine) {
+        Object result = null;
+        int start = 0;
+        for (int i = 0; i <= statements.size(); i++) {
+            if (i < statements.size() && !graph.isBarrier(i)) {
+                continue;
+            }
+            if (i - start == 1) {
+                result = engine.apply(statements.get(start));
+            } else if (i > start) {
+                result = new Segment(statements, graph, engine, start, i).run();
+            }
+            if (i < statements.size()) {
+                result = engine.apply(statements.get(i));
+            }
+            start = i + 1;
+        }
+        return result;
+    }
+
+    // Not the common pool: on a single core it has no workers and only runs tasks that are joined
+    private static final class DefaultPool {
+        private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    private final class Segment {
+        private final List<AST> statements;
+        private final DependencyGraph graph;
+        private final Function<AST, Object> engine;
+        private final int start;
+        private final int end;
+        // Written before the pending count that releases a statement is decremented, so they are visible
+        // to whichever thread starts it
+        private final AtomicIntegerArray pending;
+        private final boolean[] skipped;
+        private final Throwable[] failures;
+        private final AtomicInteger remaining;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private Object result;
+
+        private Segment(List<AST> statements, DependencyGraph graph, Function<AST, Object> engine, int start, int end) {
+            this.statements = statements;
+            this.graph = graph;
+            this.engine = engine;
+            this.start = start;
+            this.end = end;
+            this.pending = new AtomicIntegerArray(end - start);
+            this.skipped = new boolean[end - start];
+            this.failures = new Throwable[end - start];
+            this.remaining = new AtomicInteger(end - start);
+        }
+
+        private Object run() {
+            // All counts are set before the first fork, since a forked statement starts releasing right away
+            for (int i = start; i < end; i++) {
+                pending.set(i - start, graph.getPredecessorCount(i));
+            }
+            int own = -1;
+            for (int i = start; i < end; i++) {
+                if (graph.getPredecessorCount(i) == 0) {
+                    // The calling thread takes one of the ready statements itself instead of only waiting
+                    if (own >= 0) {
+                        fork(own);
+                    }
+                    own = i;
+                }
+            }
+            runFrom(own);
+            done.join();
+            PARALLEL_STATEMENTS.add(end - start);
+
+            for (Throwable failure : failures) {
+                if (failure instanceof RuntimeException) {
+                    throw (RuntimeException) failure;
+                } else if (failure instanceof Error) {
+                    throw (Error) failure;
+                }
+            }
+            return result;
+        }
+
+        private void fork(int statement) {
+            pool.execute(() -> runFrom(statement));
+        }
+
+        // Runs a statement, then continues with one of the successors it releases on the same thread
+        private void runFrom(int statement) {
+            while (statement >= 0) {
+                boolean failed = skipped[statement - start];
+                if (!failed) {
+                    try {
+                        Object value = engine.apply(statements.get(statement));
+                        if (statement == end - 1) {
+                            result = value;
+                        }
+                    } catch (RuntimeException | Error e) {
+                        failures[statement - start] = e;
+                        failed = true;
+                    }
+                }
+                int next = -1;
+                for (int successor : graph.getSuccessors(statement)) {
+                    if (failed) {
+                        skipped[successor - start] = true;
+                    }
+                    if (pending.decrementAndGet(successor - start) == 0) {
+                        if (next >= 0) {
+                            fork(next);
+                        }
+                        next = successor;
+                    }
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    done.complete(null);
+                }
+                statement = next;
+            }
+        }
+    }
+}
@@ -1,7 +1,73 @@
 package parser.AST;
 
+import interpreter.ArrayValue;
 import interpreter.Environment;
+import interpreter.MapValue;
+import interpreter.Rope;
+
+import java.util.Collections;
+import java.util.List;
 
 public abstract class AST {
+    private int line;
+    private int column;
+
     public abstract Object execute(Environment env);
+
+    public int executeInt(Environment env) {
+        Object value = execute(env);
+        if (value instanceof java.lang.Integer) {
+            return (java.lang.Integer) value;
+        }
+        throw new RuntimeException(String.format("Expected Integer but got %s", typeName(value)));
+    }
+
+    public boolean executeBoolean(Environment env) {
+        Object value = execute(env);
+        if (value instanceof java.lang.Boolean) {
+            return (java.lang.Boolean) value;
+        }
+        throw new RuntimeException(String.format("Expected Boolean but got %s", typeName(value)));
+    }
+
+    public List<AST> getChildren() {
+        return Collections.emptyList();
+    }
+
+    public AST withChildren(List<AST> children) {
+        return this;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public AST setPosition(int line, int column) {
+        this.line = line;
+        this.column = column;
+        return this;
+    }
+
+    // For passes that rebuild a node: the replacement keeps the source position of the original
+    public AST withPositionOf(AST source) {
+        if (source.line != 0) {
+            setPosition(source.line, source.column);
+        }
+        return this;
+    }
+
+    protected static String typeName(Object value) {
+        if (value instanceof Rope) {
+            return "String";
+        } else if (value instanceof ArrayValue) {
+            return "Array";
+        } else if (value instanceof MapValue) {
+            return "Map";
+        }
+        return value == null ? "null" : value.getClass().getSimpleName();
+    }
 }
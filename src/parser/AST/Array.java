@@ -0,0 +1,49 @@
+package parser.AST;
+
+import interpreter.ArrayValue;
+import interpreter.Environment;
+
+import java.util.List;
+
+public class Array extends AST {
+    private final List<AST> elements;
+
+    public Array(List<AST> elements) {
+        this.elements = elements;
+    }
+
+    public List<AST> getElements() {
+        return elements;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return elements;
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new Array(children);
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        Object[] values = new Object[elements.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = elements.get(i).execute(env);
+        }
+        return ArrayValue.of(values);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < elements.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(elements.get(i));
+        }
+        return sb.append(']').toString();
+    }
+}
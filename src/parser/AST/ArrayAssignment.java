@@ -0,0 +1,62 @@
+package parser.AST;
+
+import interpreter.ArrayValue;
+import interpreter.Environment;
+import interpreter.MapValue;
+
+import java.util.List;
+
+public class ArrayAssignment extends AST {
+    private final AST array;
+    private final AST index;
+    private final AST expr;
+
+    public ArrayAssignment(AST array, AST index, AST expr) {
+        this.array = array;
+        this.index = index;
+        this.expr = expr;
+    }
+
+    public AST getArray() {
+        return array;
+    }
+
+    public AST getIndex() {
+        return index;
+    }
+
+    public AST getExpr() {
+        return expr;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(array, index, expr);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new ArrayAssignment(children.get(0), children.get(1), children.get(2));
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        Object target = array.execute(env);
+        if (target instanceof MapValue) {
+            Object key = index.execute(env);
+            Object value = expr.execute(env);
+            ((MapValue) target).put(key, value);
+            return value;
+        }
+        ArrayValue arrayValue = ArrayVar.arrayValue(target);
+        int position = index.executeInt(env);
+        Object value = expr.execute(env);
+        arrayValue.set(position, value);
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s] = %s;", array, index, expr);
+    }
+}
@@ -0,0 +1,83 @@
+package parser.AST;
+
+import interpreter.ArrayValue;
+import interpreter.Environment;
+import interpreter.MapValue;
+
+import java.util.List;
+
+public class ArrayVar extends AST {
+    private final AST array;
+    private final AST index;
+
+    public ArrayVar(AST array, AST index) {
+        this.array = array;
+        this.index = index;
+    }
+
+    public AST getArray() {
+        return array;
+    }
+
+    public AST getIndex() {
+        return index;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(array, index);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new ArrayVar(children.get(0), children.get(1));
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        Object target = array.execute(env);
+        if (target instanceof MapValue) {
+            return ((MapValue) target).getExisting(index.execute(env));
+        }
+        return arrayValue(target).get(index.executeInt(env));
+    }
+
+    // Reads int[] storage without boxing
+    @Override
+    public int executeInt(Environment env) {
+        Object target = array.execute(env);
+        if (target instanceof MapValue) {
+            Object value = ((MapValue) target).getExisting(index.execute(env));
+            if (value instanceof java.lang.Integer) {
+                return (java.lang.Integer) value;
+            }
+            throw new RuntimeException(String.format("Expected Integer but got %s", typeName(value)));
+        }
+        return arrayValue(target).getInt(index.executeInt(env));
+    }
+
+    @Override
+    public boolean executeBoolean(Environment env) {
+        Object target = array.execute(env);
+        if (target instanceof MapValue) {
+            Object value = ((MapValue) target).getExisting(index.execute(env));
+            if (value instanceof java.lang.Boolean) {
+                return (java.lang.Boolean) value;
+            }
+            throw new RuntimeException(String.format("Expected Boolean but got %s", typeName(value)));
+        }
+        return arrayValue(target).getBoolean(index.executeInt(env));
+    }
+
+    static ArrayValue arrayValue(Object value) {
+        if (value instanceof ArrayValue) {
+            return (ArrayValue) value;
+        }
+        throw new RuntimeException("Cannot index non-array value: " + typeName(value));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%s]", array, index);
+    }
+}
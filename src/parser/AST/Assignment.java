@@ -2,6 +2,8 @@ package parser.AST;
 
 import interpreter.Environment;
 
+import java.util.List;
+
 public class Assignment extends AST {
     private final String varName;
     private final AST expr;
@@ -11,6 +13,24 @@ public class Assignment extends AST {
         this.expr = expr;
     }
 
+    public String getVarName() {
+        return varName;
+    }
+
+    public AST getExpr() {
+        return expr;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(expr);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new Assignment(varName, children.get(0));
+    }
+
     @Override
     public Object execute(Environment env) {
         Object value = expr.execute(env);
@@ -1,99 +1,279 @@
 package parser.AST;
 
 import interpreter.Environment;
+import interpreter.Rope;
 import lexer.TokenType;
+import parser.AST.specialized.*;
+
+import java.util.List;
 
 public class BinOp extends AST {
     private final TokenType op;
     private final AST left;
     private final AST right;
+    // Set when executeInt and executeBoolean can evaluate the operands unboxed. Other operands, variables
+    // for instance, may hold any type and go through execute, so a wrong type is reported by compute.
+    private final boolean typedOperands;
+    // Racy by design when a tree is shared between threads: specialized nodes only hold final fields,
+    // so a thread sees either null or a fully built node, and a lost update only costs a re-specialization
+    private AST specialization;
 
     public BinOp(TokenType op, AST left, AST right) {
         this.op = op;
         this.left = left;
         this.right = right;
+        switch (op) {
+            case PLUS: case MINUS: case MULT: case DIV: case LT: case GT: case LTE: case GTE:
+                typedOperands = yieldsInt(left) && yieldsInt(right);
+                break;
+            case AND: case OR:
+                typedOperands = yieldsBoolean(left) && yieldsBoolean(right);
+                break;
+            default:
+                typedOperands = false;
+        }
+    }
+
+    // Whether executeInt gives the node's value, or the error its execute reports, without boxing
+    public static boolean yieldsInt(AST node) {
+        if (node instanceof Integer) {
+            return true;
+        } else if (node instanceof BinOp) {
+            BinOp binOp = (BinOp) node;
+            switch (binOp.op) {
+                case PLUS: case MINUS: case MULT: case DIV:
+                    return binOp.typedOperands;
+                default:
+                    return false;
+            }
+        } else if (node instanceof UnaryOp) {
+            return ((UnaryOp) node).getOp() == TokenType.MINUS && ((UnaryOp) node).hasTypedOperand();
+        }
+        return false;
+    }
+
+    public static boolean yieldsBoolean(AST node) {
+        if (node instanceof Boolean) {
+            return true;
+        } else if (node instanceof BinOp) {
+            BinOp binOp = (BinOp) node;
+            switch (binOp.op) {
+                case EQ: case NEQ:
+                    return true;
+                case LT: case GT: case LTE: case GTE: case AND: case OR:
+                    return binOp.typedOperands;
+                default:
+                    return false;
+            }
+        } else if (node instanceof UnaryOp) {
+            return ((UnaryOp) node).getOp() == TokenType.NOT && ((UnaryOp) node).hasTypedOperand();
+        }
+        return false;
+    }
+
+    public TokenType getOp() {
+        return op;
+    }
+
+    public AST getLeft() {
+        return left;
+    }
+
+    public AST getRight() {
+        return right;
+    }
+
+    public boolean hasTypedOperands() {
+        return typedOperands;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(left, right);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new BinOp(op, children.get(0), children.get(1));
     }
 
     @Override
     public Object execute(Environment env) {
+        AST node = specialization;
+        if (node != null) {
+            return node.execute(env);
+        }
         Object leftVal = left.execute(env);
         Object rightVal = right.execute(env);
+        Object result = compute(leftVal, rightVal);
+        specialization = specialize(leftVal, rightVal);
+        SpecializationStats.recordSpecialization();
+        return result;
+    }
+
+    public Object generalize(Object leftVal, Object rightVal) {
+        specialization = new GenericBinOpNode(this);
+        SpecializationStats.recordGeneralization();
+        return compute(leftVal, rightVal);
+    }
+
+    private AST specialize(Object leftVal, Object rightVal) {
+        boolean ints = leftVal instanceof java.lang.Integer && rightVal instanceof java.lang.Integer;
+        switch (op) {
+            case PLUS:
+                if (ints) {
+                    return new IntAddNode(this);
+                } else if (Rope.isString(leftVal) || Rope.isString(rightVal)) {
+                    return new StringConcatNode(this);
+                }
+                return new GenericBinOpNode(this);
+            case MINUS:
+                return new IntSubNode(this);
+            case MULT:
+                return new IntMulNode(this);
+            case DIV:
+                return new IntDivNode(this);
+            case EQ:
+                return ints ? new IntEqualNode(this) : new GenericBinOpNode(this);
+            case NEQ:
+                return ints ? new IntNotEqualNode(this) : new GenericBinOpNode(this);
+            case LT:
+                return new IntLessThanNode(this);
+            case GT:
+                return new IntGreaterThanNode(this);
+            case LTE:
+                return new IntLessEqualNode(this);
+            case GTE:
+                return new IntGreaterEqualNode(this);
+            case AND:
+                return new BoolAndNode(this);
+            case OR:
+                return new BoolOrNode(this);
+            default:
+                return new GenericBinOpNode(this);
+        }
+    }
+
+    public Object compute(Object leftVal, Object rightVal) {
         switch (op) {
             case PLUS:
-                if (leftVal instanceof String || rightVal instanceof String) {
-                    return leftVal.toString() + rightVal.toString();
-                } else if (leftVal instanceof Integer && rightVal instanceof Integer) {
+                if (Rope.isString(leftVal) || Rope.isString(rightVal)) {
+                    return Rope.concat(leftVal, rightVal);
+                } else if (leftVal instanceof java.lang.Integer && rightVal instanceof java.lang.Integer) {
                     return (int) leftVal + (int) rightVal;
-                } else {
-                    throw new RuntimeException(String.format("Invalid types for '+' operator: %s, %s", leftVal.getClass().getSimpleName(), rightVal.getClass().getSimpleName()));
                 }
+                throw invalidTypes("+", leftVal, rightVal);
             case MINUS:
-                if (leftVal instanceof Integer && rightVal instanceof Integer) {
+                if (leftVal instanceof java.lang.Integer && rightVal instanceof java.lang.Integer) {
                     return (int) leftVal - (int) rightVal;
-                } else {
-                    throw new RuntimeException(String.format("Invalid types for '-' operator: %s, %s", leftVal.getClass().getSimpleName(), rightVal.getClass().getSimpleName()));
                 }
+                throw invalidTypes("-", leftVal, rightVal);
             case MULT:
-                if (leftVal instanceof Integer && rightVal instanceof Integer) {
+                if (leftVal instanceof java.lang.Integer && rightVal instanceof java.lang.Integer) {
                     return (int) leftVal * (int) rightVal;
-                } else {
-                    throw new RuntimeException(String.format("Invalid types for '*' operator: %s, %s", leftVal.getClass().getSimpleName(), rightVal.getClass().getSimpleName()));
                 }
+                throw invalidTypes("*", leftVal, rightVal);
             case DIV:
-                if (leftVal instanceof Integer && rightVal instanceof Integer) {
+                if (leftVal instanceof java.lang.Integer && rightVal instanceof java.lang.Integer) {
                     return (int) leftVal / (int) rightVal;
-                } else {
-                    throw new RuntimeException(String.format("Invalid types for '/' operator: %s, %s", leftVal.getClass().getSimpleName(), rightVal.getClass().getSimpleName()));
                 }
-            caseEQ:
-                return leftVal.equals(rightVal);
+                throw invalidTypes("/", leftVal, rightVal);
+            case EQ:
+                return Rope.valueEquals(leftVal, rightVal);
             case NEQ:
-                return !leftVal.equals(rightVal);
+                return !Rope.valueEquals(leftVal, rightVal);
             case LT:
-                if (leftVal instanceof Integer && rightVal instanceof Integer) {
+                if (leftVal instanceof java.lang.Integer && rightVal instanceof java.lang.Integer) {
                     return (int) leftVal < (int) rightVal;
-                } else {
-                    throw new RuntimeException(String.format("Invalid types for '<' operator: %s, %s", leftVal.getClass().getSimpleName(), rightVal.getClass().getSimpleName()));
                 }
+                throw invalidTypes("<", leftVal, rightVal);
             case GT:
-                if (leftVal instanceof Integer && rightVal instanceof Integer) {
+                if (leftVal instanceof java.lang.Integer && rightVal instanceof java.lang.Integer) {
                     return (int) leftVal > (int) rightVal;
-                } else {
-                    throw new RuntimeException(String.format("Invalid types for '>' operator: %s, %s", leftVal.getClass().getSimpleName(), rightVal.getClass().getSimpleName()));
                 }
+                throw invalidTypes(">", leftVal, rightVal);
             case LTE:
-                if (leftVal instanceof Integer && rightVal instanceof Integer) {
+                if (leftVal instanceof java.lang.Integer && rightVal instanceof java.lang.Integer) {
                     return (int) leftVal <= (int) rightVal;
-                } else {
-                    throw new RuntimeException(String.format("Invalid types for '<=' operator: %s, %s", leftVal.getClass().getSimpleName(), rightVal.getClass().getSimpleName()));
                 }
+                throw invalidTypes("<=", leftVal, rightVal);
             case GTE:
-                if (leftVal instanceof Integer && rightVal instanceof Integer) {
+                if (leftVal instanceof java.lang.Integer && rightVal instanceof java.lang.Integer) {
                     return (int) leftVal >= (int) rightVal;
-                } else {
-                    throw new RuntimeException(String.format("Invalid types for '>=' operator: %s, %s", leftVal.getClass().getSimpleName(), rightVal.getClass().getSimpleName()));
                 }
+                throw invalidTypes(">=", leftVal, rightVal);
             case AND:
-                if (leftVal instanceof Boolean && rightVal instanceof Boolean) {
+                if (leftVal instanceof java.lang.Boolean && rightVal instanceof java.lang.Boolean) {
                     return (boolean) leftVal && (boolean) rightVal;
                 }
-            case AND:
-                if (leftVal instanceof Boolean && rightVal instanceof Boolean) {
-                    return (boolean) leftVal && (boolean) rightVal;
-                } else {
-                    throw new RuntimeException(String.format("Invalid types for '&&' operator: %s, %s", leftVal.getClass().getSimpleName(), rightVal.getClass().getSimpleName()));
-                }
+                throw invalidTypes("&&", leftVal, rightVal);
             case OR:
-                if (leftVal instanceof Boolean && rightVal instanceof Boolean) {
+                if (leftVal instanceof java.lang.Boolean && rightVal instanceof java.lang.Boolean) {
                     return (boolean) leftVal || (boolean) rightVal;
-                } else {
-                    throw new RuntimeException(String.format("Invalid types for '||' operator: %s, %s", leftVal.getClass().getSimpleName(), rightVal.getClass().getSimpleName()));
                 }
+                throw invalidTypes("||", leftVal, rightVal);
             default:
                 throw new RuntimeException(String.format("Unknown operator: %s", op));
         }
     }
 
+    private static RuntimeException invalidTypes(String op, Object leftVal, Object rightVal) {
+        return new RuntimeException(String.format("Invalid types for '%s' operator: %s, %s", op, typeName(leftVal), typeName(rightVal)));
+    }
+
+    @Override
+    public int executeInt(Environment env) {
+        if (!typedOperands) {
+            return super.executeInt(env);
+        }
+        switch (op) {
+            case PLUS:
+                return left.executeInt(env) + right.executeInt(env);
+            case MINUS:
+                return left.executeInt(env) - right.executeInt(env);
+            case MULT:
+                return left.executeInt(env) * right.executeInt(env);
+            case DIV:
+                return left.executeInt(env) / right.executeInt(env);
+            default:
+                return super.executeInt(env);
+        }
+    }
+
+    @Override
+    public boolean executeBoolean(Environment env) {
+        if (!typedOperands && op != TokenType.EQ && op != TokenType.NEQ) {
+            return super.executeBoolean(env);
+        }
+        switch (op) {
+            case EQ:
+                return Rope.valueEquals(left.execute(env), right.execute(env));
+            case NEQ:
+                return !Rope.valueEquals(left.execute(env), right.execute(env));
+            case LT:
+                return left.executeInt(env) < right.executeInt(env);
+            case GT:
+                return left.executeInt(env) > right.executeInt(env);
+            case LTE:
+                return left.executeInt(env) <= right.executeInt(env);
+            case GTE:
+                return left.executeInt(env) >= right.executeInt(env);
+            case AND: {
+                // Both operands are always evaluated, matching the VM
+                boolean leftVal = left.executeBoolean(env);
+                boolean rightVal = right.executeBoolean(env);
+                return leftVal && rightVal;
+            }
+            case OR: {
+                boolean leftVal = left.executeBoolean(env);
+                boolean rightVal = right.executeBoolean(env);
+                return leftVal || rightVal;
+            }
+            default:
+                return super.executeBoolean(env);
+        }
+    }
+
     @Override
     public String toString() {
         return String.format("(%s %s %s)", left, op, right);
@@ -9,11 +9,20 @@ public class Boolean extends AST {
         this.value = value;
     }
 
+    public boolean getValue() {
+        return value;
+    }
+
     @Override
     public Object execute(Environment env) {
         return value;
     }
 
+    @Override
+    public boolean executeBoolean(Environment env) {
+        return value;
+    }
+
     @Override
     public String toString() {
         return String.valueOf(value);
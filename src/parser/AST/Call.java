@@ -0,0 +1,104 @@
+package parser.AST;
+
+import interpreter.Environment;
+import interpreter.FrameStack;
+import interpreter.FunctionValue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Call extends AST {
+    protected final AST callee;
+    protected final List<AST> args;
+    // Monomorphic inline cache: calls to the same function skip the type and arity checks.
+    // FunctionValue only has final fields, so a racy read sees a complete object.
+    private FunctionValue cachedFunction;
+
+    public Call(AST callee, List<AST> args) {
+        this.callee = callee;
+        this.args = args;
+    }
+
+    public AST getCallee() {
+        return callee;
+    }
+
+    public List<AST> getArgs() {
+        return args;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        List<AST> children = new ArrayList<>(args.size() + 1);
+        children.add(callee);
+        children.addAll(args);
+        return children;
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new Call(children.get(0), children.subList(1, children.size()));
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        FunctionValue function = resolveTarget(callee.execute(env));
+        FrameStack frames = env.getFrames();
+        int frame = frames.reserve(function.getFrameSize());
+        for (int i = 0; i < args.size(); i++) {
+            frames.setArgument(frame, i, args.get(i).execute(env));
+        }
+        return invoke(function, frame, frames, env);
+    }
+
+    protected FunctionValue resolveTarget(Object target) {
+        FunctionValue cached = cachedFunction;
+        if (target == cached) {
+            return cached;
+        }
+        if (!(target instanceof FunctionValue)) {
+            throw new RuntimeException("Cannot call non-function value: " + typeName(target));
+        }
+        FunctionValue function = (FunctionValue) target;
+        if (function.getArity() != args.size()) {
+            throw new RuntimeException(String.format("Function %s expects %d arguments but got %d",
+                    function.getName(), function.getArity(), args.size()));
+        }
+        cachedFunction = function;
+        return function;
+    }
+
+    // Tail calls in the body come back as TAIL_CALL and run in the same frame, so they use no Java stack
+    private static Object invoke(FunctionValue function, int frame, FrameStack frames, Environment env) {
+        int callerBase = frames.enter(frame);
+        try {
+            while (true) {
+                Object result;
+                try {
+                    result = function.getBody().execute(env);
+                } catch (ReturnSignal signal) {
+                    result = frames.takeReturnValue();
+                }
+                if (result != FrameStack.TAIL_CALL) {
+                    return result;
+                }
+                function = frames.replaceFrame(frame);
+            }
+        } finally {
+            frames.leave(frame, callerBase);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(callee).append('(');
+        for (int i = 0; i < args.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(args.get(i));
+        }
+        return sb.append(')').toString();
+    }
+}
@@ -1,7 +1,6 @@
 package parser.AST;
 
 import interpreter.Environment;
-import interpreter.Value;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -13,16 +12,35 @@ public class Compound extends AST {
         this.children = new ArrayList<>();
     }
 
+    public Compound(List<AST> children) {
+        this.children = new ArrayList<>(children);
+    }
+
     public void addChild(AST node) {
         children.add(node);
     }
 
     @Override
-    public Value execute(Environment env) {
+    public List<AST> getChildren() {
+        return children;
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        Compound compound = new Compound();
+        for (AST child : children) {
+            compound.addChild(child);
+        }
+        return compound;
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        Object result = null;
         for (AST child : children) {
-            child.execute(env);
+            result = child.execute(env);
         }
-        return null;
+        return result;
     }
 
     @Override
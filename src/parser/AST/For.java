@@ -0,0 +1,56 @@
+package parser.AST;
+
+import interpreter.Environment;
+
+import java.util.List;
+
+public class For extends Loop {
+    private final AST init;
+    private final AST condition;
+    private final AST update;
+    private final AST body;
+
+    public For(AST init, AST condition, AST update, AST body) {
+        this.init = init;
+        this.condition = condition;
+        this.update = update;
+        this.body = body;
+    }
+
+    public AST getInit() {
+        return init;
+    }
+
+    public AST getCondition() {
+        return condition;
+    }
+
+    public AST getUpdate() {
+        return update;
+    }
+
+    public AST getBody() {
+        return body;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(init, condition, update, body);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new For(children.get(0), children.get(1), children.get(2), children.get(3));
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        init.execute(env);
+        return runLoop(condition, body, update, env);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("for %s %s; %s { %s }", init, condition, update, body);
+    }
+}
@@ -0,0 +1,60 @@
+package parser.AST;
+
+import interpreter.Environment;
+import interpreter.FunctionValue;
+
+import java.util.List;
+
+// A function literal whose parameters and locals have already been given frame slots
+public class FunctionNode extends AST {
+    private final String name;
+    private final List<String> localNames;
+    private final int arity;
+    private final AST body;
+    private final FunctionValue function;
+
+    public FunctionNode(String name, List<String> localNames, int arity, AST body) {
+        this.name = name;
+        this.localNames = localNames;
+        this.arity = arity;
+        this.body = body;
+        this.function = new FunctionValue(name, arity, localNames.size(), body);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Parameters first, then the other locals, in slot order
+    public List<String> getLocalNames() {
+        return localNames;
+    }
+
+    public int getArity() {
+        return arity;
+    }
+
+    public AST getBody() {
+        return body;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(body);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new FunctionNode(name, localNames, arity, children.get(0));
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        return function;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("fun %s(%s) { %s }", name, String.join(", ", localNames.subList(0, arity)), body);
+    }
+}
@@ -1,7 +1,8 @@
 package parser.AST;
 
 import interpreter.Environment;
-import interpreter.Value;
+
+import java.util.List;
 
 public class IfElse extends AST {
     private final AST condition;
@@ -14,10 +15,31 @@ public class IfElse extends AST {
         this.elseBody = elseBody;
     }
 
+    public AST getCondition() {
+        return condition;
+    }
+
+    public AST getIfBody() {
+        return ifBody;
+    }
+
+    public AST getElseBody() {
+        return elseBody;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(condition, ifBody, elseBody);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new IfElse(children.get(0), children.get(1), children.get(2));
+    }
+
     @Override
-    public Value execute(Environment env) {
-        Value conditionValue = condition.execute(env);
-        if (conditionValue.asBoolean()) {
+    public Object execute(Environment env) {
+        if (condition.executeBoolean(env)) {
             return ifBody.execute(env);
         } else {
             return elseBody.execute(env);
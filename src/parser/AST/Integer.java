@@ -2,20 +2,31 @@ package parser.AST;
 
 import interpreter.Environment;
 
-public class Integer implements Expr {
+public class Integer extends AST {
     private final int value;
+    private final java.lang.Integer boxed;
 
     public Integer(int value) {
         this.value = value;
+        this.boxed = value;
+    }
+
+    public int getValue() {
+        return value;
     }
 
     @Override
     public Object execute(Environment env) {
+        return boxed;
+    }
+
+    @Override
+    public int executeInt(Environment env) {
         return value;
     }
 
     @Override
     public String toString() {
-        return Integer.toString(value);
+        return String.valueOf(value);
     }
 }
\ No newline at end of file
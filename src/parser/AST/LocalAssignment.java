@@ -0,0 +1,51 @@
+package parser.AST;
+
+import interpreter.Environment;
+
+import java.util.List;
+
+public class LocalAssignment extends AST {
+    private final String varName;
+    private final int slot;
+    private final AST expr;
+
+    public LocalAssignment(String varName, int slot, AST expr) {
+        this.varName = varName;
+        this.slot = slot;
+        this.expr = expr;
+    }
+
+    public String getVarName() {
+        return varName;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public AST getExpr() {
+        return expr;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(expr);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new LocalAssignment(varName, slot, children.get(0));
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        Object value = expr.execute(env);
+        env.getFrames().setLocal(slot, value);
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("let %s = %s;", varName, expr);
+    }
+}
@@ -0,0 +1,35 @@
+package parser.AST;
+
+import interpreter.Environment;
+
+public class LocalVar extends AST {
+    private final String name;
+    private final int slot;
+
+    public LocalVar(String name, int slot) {
+        this.name = name;
+        this.slot = slot;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        Object value = env.getFrames().getLocal(slot);
+        if (value == Environment.UNDEFINED) {
+            throw new RuntimeException("Variable not defined: " + name);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
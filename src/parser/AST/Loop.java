@@ -0,0 +1,63 @@
+package parser.AST;
+
+import interpreter.Environment;
+import jit.CompiledProgram;
+import jit.JitCompiler;
+import jit.JitException;
+import metrics.PhaseMetrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts the back-edges a loop takes across all its runs. Once the count reaches the threshold, the
+// loop is compiled to JVM bytecode and the current run continues in compiled code from the next
+// condition check. Loop state lives in the environment, so nothing needs to be transferred, and
+// later runs of the loop start in compiled code.
+// Set -Dopenwz.osr.threshold=0 to keep every loop in the tree walker.
+public abstract class Loop extends AST {
+    static final int PROMOTION_THRESHOLD = java.lang.Integer.getInteger("openwz.osr.threshold", 1000);
+    private static final LongAdder PROMOTIONS = PhaseMetrics.EXECUTE.counter("loopPromotions");
+    private static final LongAdder FAILED_PROMOTIONS = PhaseMetrics.EXECUTE.counter("failedLoopPromotions");
+    private static final Object NOT_PROMOTABLE = new Object();
+
+    // Racy by design, like BinOp specialization: a lost update only delays or repeats a promotion
+    private int backEdges;
+    private Object promoted;
+
+    protected Object runLoop(AST condition, AST body, AST update, Environment env) {
+        Object compiled = promoted;
+        if (compiled instanceof CompiledProgram) {
+            return ((CompiledProgram) compiled).run(env);
+        }
+        while (condition.executeBoolean(env)) {
+            body.execute(env);
+            if (update != null) {
+                update.execute(env);
+            }
+            if (PROMOTION_THRESHOLD > 0 && ++backEdges == PROMOTION_THRESHOLD) {
+                compiled = promote(condition, body, update);
+                if (compiled instanceof CompiledProgram) {
+                    return ((CompiledProgram) compiled).run(env);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Object promote(AST condition, AST body, AST update) {
+        if (promoted == null) {
+            try {
+                promoted = JitCompiler.compileLoop(condition, body, update);
+                PROMOTIONS.increment();
+            } catch (JitException e) {
+                // Nodes the JIT cannot compile, such as arrays or profiled nodes, keep the loop in the tree walker
+                promoted = NOT_PROMOTABLE;
+                FAILED_PROMOTIONS.increment();
+            }
+        }
+        return promoted;
+    }
+
+    public boolean isPromoted() {
+        return promoted instanceof CompiledProgram;
+    }
+}
@@ -0,0 +1,68 @@
+package parser.AST;
+
+import interpreter.Environment;
+import interpreter.MapValue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MapNode extends AST {
+    private final List<AST> keys;
+    private final List<AST> values;
+
+    public MapNode(List<AST> keys, List<AST> values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    public List<AST> getKeys() {
+        return keys;
+    }
+
+    public List<AST> getValues() {
+        return values;
+    }
+
+    // Keys and values interleaved, in source order
+    @Override
+    public List<AST> getChildren() {
+        List<AST> children = new ArrayList<>(keys.size() * 2);
+        for (int i = 0; i < keys.size(); i++) {
+            children.add(keys.get(i));
+            children.add(values.get(i));
+        }
+        return children;
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        List<AST> newKeys = new ArrayList<>(children.size() / 2);
+        List<AST> newValues = new ArrayList<>(children.size() / 2);
+        for (int i = 0; i < children.size(); i += 2) {
+            newKeys.add(children.get(i));
+            newValues.add(children.get(i + 1));
+        }
+        return new MapNode(newKeys, newValues);
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        MapValue map = new MapValue(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            map.put(keys.get(i).execute(env), values.get(i).execute(env));
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(keys.get(i)).append(": ").append(values.get(i));
+        }
+        return sb.append('}').toString();
+    }
+}
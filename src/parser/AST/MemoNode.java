@@ -0,0 +1,103 @@
+package parser.AST;
+
+import interpreter.Environment;
+import interpreter.Rope;
+import metrics.PhaseMetrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+// Remembers the value of a pure expression together with the global slots it read. While every input
+// still holds the same value, the remembered value is returned without evaluating the expression.
+// Only integers, booleans and strings are remembered as inputs: an array or map can change behind the
+// same reference. A node whose inputs keep changing stops checking them.
+public class MemoNode extends AST {
+    static final int MISS_LIMIT = 32;
+    private static final LongAdder DISABLED = PhaseMetrics.EXECUTE.counter("disabledMemos");
+
+    private final AST expr;
+    private final int[] inputSlots;
+    // Racy by design, like BinOp specialization: entries are replaced whole, and a lost update only
+    // costs a recomputation
+    private Entry entry;
+    private int hits;
+    private int misses;
+    private boolean disabled;
+
+    public MemoNode(AST expr, int[] inputSlots) {
+        this.expr = expr;
+        this.inputSlots = inputSlots;
+    }
+
+    public AST getExpr() {
+        return expr;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(expr);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new MemoNode(children.get(0), inputSlots);
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        if (disabled) {
+            return expr.execute(env);
+        }
+        Entry cached = entry;
+        if (cached != null && cached.matches(env, inputSlots)) {
+            hits++;
+            return cached.value;
+        }
+        Object value = expr.execute(env);
+        entry = remember(env, value);
+        if (++misses >= MISS_LIMIT && misses > hits) {
+            disabled = true;
+            entry = null;
+            DISABLED.increment();
+        }
+        return value;
+    }
+
+    // Read after the expression succeeded, so every input is defined and still holds what it read
+    private Entry remember(Environment env, Object value) {
+        Object[] inputs = new Object[inputSlots.length];
+        for (int i = 0; i < inputs.length; i++) {
+            Object input = env.getSlot(inputSlots[i]);
+            if (!(input instanceof java.lang.Integer || input instanceof java.lang.Boolean || Rope.isString(input))) {
+                return null;
+            }
+            inputs[i] = input;
+        }
+        return new Entry(inputs, value);
+    }
+
+    @Override
+    public String toString() {
+        return expr.toString();
+    }
+
+    private static final class Entry {
+        private final Object[] inputs;
+        private final Object value;
+
+        private Entry(Object[] inputs, Object value) {
+            this.inputs = inputs;
+            this.value = value;
+        }
+
+        private boolean matches(Environment env, int[] slots) {
+            for (int i = 0; i < slots.length; i++) {
+                Object input = env.getSlot(slots[i]);
+                if (input != inputs[i] && !(input instanceof java.lang.Integer && input.equals(inputs[i]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
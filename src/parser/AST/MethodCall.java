@@ -0,0 +1,111 @@
+package parser.AST;
+
+import interpreter.ArrayValue;
+import interpreter.Environment;
+import interpreter.MapValue;
+import interpreter.Rope;
+
+import java.util.List;
+
+public class MethodCall extends AST {
+    private final AST target;
+    private final String name;
+    private final List<AST> args;
+
+    public MethodCall(AST target, String name, List<AST> args) {
+        this.target = target;
+        this.name = name;
+        this.args = args;
+    }
+
+    public AST getTarget() {
+        return target;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<AST> getArgs() {
+        return args;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        AST[] children = new AST[args.size() + 1];
+        children[0] = target;
+        for (int i = 0; i < args.size(); i++) {
+            children[i + 1] = args.get(i);
+        }
+        return List.of(children);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new MethodCall(children.get(0), name, children.subList(1, children.size()));
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        Object receiver = target.execute(env);
+        Object[] values = new Object[args.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = args.get(i).execute(env);
+        }
+        if (receiver instanceof ArrayValue) {
+            return callArrayMethod((ArrayValue) receiver, values);
+        } else if (receiver instanceof MapValue) {
+            return callMapMethod((MapValue) receiver, values);
+        } else if (Rope.isString(receiver) && name.equals("length") && values.length == 0) {
+            return ((CharSequence) receiver).length();
+        }
+        throw unknownMethod(receiver);
+    }
+
+    private Object callArrayMethod(ArrayValue array, Object[] values) {
+        if (name.equals("length") && values.length == 0) {
+            return array.length();
+        } else if (name.equals("append") && values.length == 1) {
+            array.append(values[0]);
+            return array;
+        }
+        throw unknownMethod(array);
+    }
+
+    private Object callMapMethod(MapValue map, Object[] values) {
+        if (name.equals("get") && values.length == 1) {
+            return map.getExisting(values[0]);
+        } else if (name.equals("get") && values.length == 2) {
+            return map.containsKey(values[0]) ? map.get(values[0]) : values[1];
+        } else if (name.equals("put") && values.length == 2) {
+            map.put(values[0], values[1]);
+            return map;
+        } else if (name.equals("contains") && values.length == 1) {
+            return map.containsKey(values[0]);
+        } else if (name.equals("keys") && values.length == 0) {
+            return map.keys();
+        } else if (name.equals("values") && values.length == 0) {
+            return map.values();
+        } else if (name.equals("length") && values.length == 0) {
+            return map.length();
+        }
+        throw unknownMethod(map);
+    }
+
+    private RuntimeException unknownMethod(Object receiver) {
+        return new RuntimeException(String.format("Unknown method '%s' with %d arguments on %s", name, args.size(), typeName(receiver)));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(target).append('.').append(name).append('(');
+        for (int i = 0; i < args.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(args.get(i));
+        }
+        return sb.append(')').toString();
+    }
+}
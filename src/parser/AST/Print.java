@@ -1,7 +1,8 @@
 package parser.AST;
 
 import interpreter.Environment;
-import interpreter.Value;
+
+import java.util.List;
 
 public class Print extends AST {
     private final AST expr;
@@ -10,9 +11,23 @@ public class Print extends AST {
         this.expr = expr;
     }
 
+    public AST getExpr() {
+        return expr;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(expr);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new Print(children.get(0));
+    }
+
     @Override
-    public Value execute(Environment env) {
-        System.out.println(expr.execute(env));
+    public Object execute(Environment env) {
+        env.getOutput().println(expr.execute(env));
         return null;
     }
 
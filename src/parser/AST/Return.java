@@ -0,0 +1,38 @@
+package parser.AST;
+
+import interpreter.Environment;
+
+import java.util.List;
+
+public class Return extends AST {
+    private final AST expr;
+
+    public Return(AST expr) {
+        this.expr = expr;
+    }
+
+    public AST getExpr() {
+        return expr;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(expr);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new Return(children.get(0));
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        env.getFrames().setReturnValue(expr.execute(env));
+        throw ReturnSignal.INSTANCE;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("return %s;", expr);
+    }
+}
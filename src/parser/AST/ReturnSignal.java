@@ -0,0 +1,11 @@
+package parser.AST;
+
+// Unwinds a return out of loops and blocks to the enclosing call. There is one shared instance
+// without a stack trace; the value travels in the frame stack.
+final class ReturnSignal extends RuntimeException {
+    static final ReturnSignal INSTANCE = new ReturnSignal();
+
+    private ReturnSignal() {
+        super(null, null, false, false);
+    }
+}
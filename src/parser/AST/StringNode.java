@@ -0,0 +1,26 @@
+package parser.AST;
+
+import interpreter.Environment;
+
+public class StringNode extends AST {
+    private final String value;
+
+    // Interned so that map lookups with a literal key match the stored key by reference
+    public StringNode(String value) {
+        this.value = value.intern();
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("\"%s\"", value);
+    }
+}
@@ -0,0 +1,32 @@
+package parser.AST;
+
+import interpreter.Environment;
+import interpreter.FrameStack;
+import interpreter.FunctionValue;
+
+import java.util.List;
+
+// A call whose result is the result of the enclosing function. Only placed in tail position, so the
+// TAIL_CALL marker it returns travels straight back to the call loop in Call.
+public class TailCall extends Call {
+    public TailCall(AST callee, List<AST> args) {
+        super(callee, args);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new TailCall(children.get(0), children.subList(1, children.size()));
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        FunctionValue function = resolveTarget(callee.execute(env));
+        FrameStack frames = env.getFrames();
+        int staging = frames.reserve(function.getArity());
+        for (int i = 0; i < args.size(); i++) {
+            frames.setArgument(staging, i, args.get(i).execute(env));
+        }
+        frames.setPendingCall(function, staging);
+        return FrameStack.TAIL_CALL;
+    }
+}
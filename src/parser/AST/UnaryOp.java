@@ -2,28 +2,84 @@ package parser.AST;
 
 import interpreter.Environment;
 import lexer.TokenType;
+import parser.AST.specialized.BoolNotNode;
+import parser.AST.specialized.GenericUnaryOpNode;
+import parser.AST.specialized.IntNegateNode;
+import parser.AST.specialized.SpecializationStats;
+
+import java.util.List;
 
 public class UnaryOp extends AST {
     private final TokenType op;
     private final AST expr;
+    // As in BinOp: whether the typed paths may evaluate the operand unboxed
+    private final boolean typedOperand;
+    // Racy when shared between threads; see BinOp
+    private AST specialization;
 
     public UnaryOp(TokenType op, AST expr) {
         this.op = op;
         this.expr = expr;
+        this.typedOperand = op == TokenType.MINUS ? BinOp.yieldsInt(expr) : op == TokenType.NOT && BinOp.yieldsBoolean(expr);
+    }
+
+    public TokenType getOp() {
+        return op;
+    }
+
+    public AST getExpr() {
+        return expr;
+    }
+
+    public boolean hasTypedOperand() {
+        return typedOperand;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(expr);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new UnaryOp(op, children.get(0));
     }
 
     @Override
     public Object execute(Environment env) {
+        AST node = specialization;
+        if (node != null) {
+            return node.execute(env);
+        }
         Object value = expr.execute(env);
+        Object result = compute(value);
+        if (op == TokenType.MINUS && value instanceof java.lang.Integer) {
+            specialization = new IntNegateNode(this);
+        } else if (op == TokenType.NOT && value instanceof java.lang.Boolean) {
+            specialization = new BoolNotNode(this);
+        } else {
+            specialization = new GenericUnaryOpNode(this);
+        }
+        SpecializationStats.recordSpecialization();
+        return result;
+    }
+
+    public Object generalize(Object value) {
+        specialization = new GenericUnaryOpNode(this);
+        SpecializationStats.recordGeneralization();
+        return compute(value);
+    }
+
+    public Object compute(Object value) {
         switch (op) {
             case MINUS:
-                if (value instanceof Integer) {
+                if (value instanceof java.lang.Integer) {
                     return -(int) value;
                 } else {
                     throw new RuntimeException("Cannot negate non-integer value");
                 }
             case NOT:
-                if (value instanceof Boolean) {
+                if (value instanceof java.lang.Boolean) {
                     return !(boolean) value;
                 } else {
                     throw new RuntimeException("Cannot negate non-boolean value");
@@ -33,6 +89,22 @@ public class UnaryOp extends AST {
         }
     }
 
+    @Override
+    public int executeInt(Environment env) {
+        if (op == TokenType.MINUS && typedOperand) {
+            return -expr.executeInt(env);
+        }
+        return super.executeInt(env);
+    }
+
+    @Override
+    public boolean executeBoolean(Environment env) {
+        if (op == TokenType.NOT && typedOperand) {
+            return !expr.executeBoolean(env);
+        }
+        return super.executeBoolean(env);
+    }
+
     @Override
     public String toString() {
         return String.format("(%s, %s)", op, expr);
@@ -1,18 +1,21 @@
 package parser.AST;
 
 import interpreter.Environment;
-import interpreter.Value;
 
-public class Var extends Expr {
+public class Var extends AST {
     private final String name;
 
     public Var(String name) {
         this.name = name;
     }
 
+    public String getName() {
+        return name;
+    }
+
     @Override
-    public Value execute(Environment env) {
-        return env.get(name);
+    public Object execute(Environment env) {
+        return env.getVariable(name);
     }
 
     @Override
@@ -0,0 +1,43 @@
+package parser.AST;
+
+import interpreter.Environment;
+
+import java.util.List;
+
+public class While extends Loop {
+    private final AST condition;
+    private final AST body;
+
+    public While(AST condition, AST body) {
+        this.condition = condition;
+        this.body = body;
+    }
+
+    public AST getCondition() {
+        return condition;
+    }
+
+    public AST getBody() {
+        return body;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(condition, body);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new While(children.get(0), children.get(1));
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        return runLoop(condition, body, null, env);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("while %s { %s }", condition, body);
+    }
+}
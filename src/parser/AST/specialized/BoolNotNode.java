@@ -0,0 +1,19 @@
+package parser.AST.specialized;
+
+import interpreter.Environment;
+import parser.AST.UnaryOp;
+
+public class BoolNotNode extends SpecializedUnaryOp {
+    public BoolNotNode(UnaryOp owner) {
+        super(owner);
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        Object value = expr.execute(env);
+        if (value instanceof Boolean) {
+            return !(boolean) value;
+        }
+        return owner.generalize(value);
+    }
+}
@@ -0,0 +1,14 @@
+package parser.AST.specialized;
+
+import parser.AST.BinOp;
+
+public class BoolOrNode extends SpecializedBinOp {
+    public BoolOrNode(BinOp owner) {
+        super(owner, OperandTypes.BOOLEANS);
+    }
+
+    @Override
+    protected Object apply(Object leftVal, Object rightVal) {
+        return (boolean) leftVal || (boolean) rightVal;
+    }
+}
@@ -0,0 +1,14 @@
+package parser.AST.specialized;
+
+import parser.AST.BinOp;
+
+public class GenericBinOpNode extends SpecializedBinOp {
+    public GenericBinOpNode(BinOp owner) {
+        super(owner, OperandTypes.ANY);
+    }
+
+    @Override
+    protected Object apply(Object leftVal, Object rightVal) {
+        return owner.compute(leftVal, rightVal);
+    }
+}
@@ -0,0 +1,15 @@
+package parser.AST.specialized;
+
+import interpreter.Environment;
+import parser.AST.UnaryOp;
+
+public class GenericUnaryOpNode extends SpecializedUnaryOp {
+    public GenericUnaryOpNode(UnaryOp owner) {
+        super(owner);
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        return owner.compute(expr.execute(env));
+    }
+}
@@ -0,0 +1,14 @@
+package parser.AST.specialized;
+
+import parser.AST.BinOp;
+
+public class IntGreaterThanNode extends SpecializedBinOp {
+    public IntGreaterThanNode(BinOp owner) {
+        super(owner, OperandTypes.INTS);
+    }
+
+    @Override
+    protected Object apply(Object leftVal, Object rightVal) {
+        return (int) leftVal > (int) rightVal;
+    }
+}
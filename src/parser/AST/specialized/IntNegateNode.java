@@ -0,0 +1,19 @@
+package parser.AST.specialized;
+
+import interpreter.Environment;
+import parser.AST.UnaryOp;
+
+public class IntNegateNode extends SpecializedUnaryOp {
+    public IntNegateNode(UnaryOp owner) {
+        super(owner);
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        Object value = expr.execute(env);
+        if (value instanceof Integer) {
+            return -(int) value;
+        }
+        return owner.generalize(value);
+    }
+}
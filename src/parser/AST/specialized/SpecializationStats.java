@@ -0,0 +1,31 @@
+package parser.AST.specialized;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public final class SpecializationStats {
+    private static final LongAdder specializations = new LongAdder();
+    private static final LongAdder generalizations = new LongAdder();
+
+    private SpecializationStats() {
+    }
+
+    public static void recordSpecialization() {
+        specializations.increment();
+    }
+
+    public static void recordGeneralization() {
+        generalizations.increment();
+    }
+
+    public static long getSpecializations() {
+        return specializations.sum();
+    }
+
+    public static long getGeneralizations() {
+        return generalizations.sum();
+    }
+
+    public static String report() {
+        return String.format("specialized sites: %d, generalized sites: %d", getSpecializations(), getGeneralizations());
+    }
+}
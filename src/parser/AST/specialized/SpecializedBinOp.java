@@ -0,0 +1,68 @@
+package parser.AST.specialized;
+
+import interpreter.Environment;
+import interpreter.Rope;
+import lexer.TokenType;
+import parser.AST.AST;
+import parser.AST.BinOp;
+
+// A node that evaluates its owner for the operand types it was specialized on. Operand values of other types
+// go to the owner's generalize, so a type error reads the same as on the owner's first evaluation and in
+// compiled code. Operands that BinOp knows can only give the expected types are evaluated unboxed instead.
+public abstract class SpecializedBinOp extends AST {
+    protected final BinOp owner;
+    protected final AST left;
+    protected final AST right;
+    private final OperandTypes operandTypes;
+    private final boolean typedOperands;
+    private final boolean booleanResult;
+
+    // The operand values a node applies to; anything else is generalized
+    protected enum OperandTypes {
+        INTS, BOOLEANS, STRING, ANY
+    }
+
+    protected SpecializedBinOp(BinOp owner, OperandTypes operandTypes) {
+        this.owner = owner;
+        this.operandTypes = operandTypes;
+        this.left = owner.getLeft();
+        this.right = owner.getRight();
+        this.typedOperands = owner.hasTypedOperands();
+        TokenType op = owner.getOp();
+        this.booleanResult = op == TokenType.LT || op == TokenType.GT || op == TokenType.LTE || op == TokenType.GTE
+                || op == TokenType.AND || op == TokenType.OR;
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        if (typedOperands) {
+            return booleanResult ? (Object) owner.executeBoolean(env) : (Object) owner.executeInt(env);
+        }
+        Object leftVal = left.execute(env);
+        Object rightVal = right.execute(env);
+        if (accepts(leftVal, rightVal)) {
+            return apply(leftVal, rightVal);
+        }
+        return owner.generalize(leftVal, rightVal);
+    }
+
+    private boolean accepts(Object leftVal, Object rightVal) {
+        switch (operandTypes) {
+            case INTS:
+                return leftVal instanceof Integer && rightVal instanceof Integer;
+            case BOOLEANS:
+                return leftVal instanceof Boolean && rightVal instanceof Boolean;
+            case STRING:
+                return Rope.isString(leftVal) || Rope.isString(rightVal);
+            default:
+                return true;
+        }
+    }
+
+    protected abstract Object apply(Object leftVal, Object rightVal);
+
+    @Override
+    public String toString() {
+        return owner.toString();
+    }
+}
@@ -0,0 +1,19 @@
+package parser.AST.specialized;
+
+import parser.AST.AST;
+import parser.AST.UnaryOp;
+
+public abstract class SpecializedUnaryOp extends AST {
+    protected final UnaryOp owner;
+    protected final AST expr;
+
+    protected SpecializedUnaryOp(UnaryOp owner) {
+        this.owner = owner;
+        this.expr = owner.getExpr();
+    }
+
+    @Override
+    public String toString() {
+        return owner.toString();
+    }
+}
@@ -0,0 +1,15 @@
+package parser.AST.specialized;
+
+import interpreter.Rope;
+import parser.AST.BinOp;
+
+public class StringConcatNode extends SpecializedBinOp {
+    public StringConcatNode(BinOp owner) {
+        super(owner, OperandTypes.STRING);
+    }
+
+    @Override
+    protected Object apply(Object leftVal, Object rightVal) {
+        return Rope.concat(leftVal, rightVal);
+    }
+}
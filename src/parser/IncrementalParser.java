@@ -0,0 +1,388 @@
+package parser;
+
+import lexer.Lexer;
+import lexer.Token;
+import lexer.TokenSource;
+import metrics.Allocations;
+import metrics.ParseEvent;
+import metrics.PhaseMetrics;
+import parser.AST.AST;
+import parser.AST.Compound;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps the source and the top-level statements of a program across edits. An edit is re-lexed and
+// re-parsed from the start of the statement before it, and parsing stops at the first statement boundary
+// past the edit that lines up with a statement of the previous parse. The lexer and parser carry no state
+// across a top-level boundary, so that statement and every one after it are reused as they are.
+public class IncrementalParser {
+    private static final LongAdder TOKENS = PhaseMetrics.PARSE.counter("tokens");
+    private static final LongAdder NODES = PhaseMetrics.PARSE.counter("nodes");
+    private static final LongAdder REPARSED = PhaseMetrics.PARSE.counter("reparsedStatements");
+    private static final LongAdder REUSED = PhaseMetrics.PARSE.counter("reusedStatements");
+
+    private final GapBuffer text;
+    private final List<Statement> statements = new ArrayList<>();
+    // The statements' nodes in the same order, so handing out the program is a single copy
+    private final List<AST> nodes = new ArrayList<>();
+    // Statements from here on may have moved to other lines since the program was last handed out
+    private int staleFrom = java.lang.Integer.MAX_VALUE;
+    // Offset and line deltas owed by every statement from shiftFrom on. Edits move this boundary instead of
+    // updating every later statement, so their cost follows the distance between edits, not the file size.
+    private int shiftFrom;
+    private int shiftOffset;
+    private int shiftLines;
+    // While the source does not parse, the text that failed is kept as one statement without a node.
+    // Statements on either side of it stay valid, so the next edit still only reparses locally.
+    private int damaged = -1;
+    private RuntimeException error;
+    // Position of the end of input when there are no statements, which a full parse gives the program
+    private int emptyLine = 1;
+    private int emptyColumn = 1;
+
+    public IncrementalParser(String source) {
+        this.text = new GapBuffer(source);
+        try {
+            reparse(0, 0, 0, 0);
+        } catch (RuntimeException e) {
+            // Reported by getProgram, so a source that starts out broken can still be edited
+        }
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    // Replaces removedLength chars at offset with insertedText. Throws if the edited source does not parse;
+    // later edits continue from the edited text either way.
+    public void edit(int offset, int removedLength, String insertedText) {
+        if (offset < 0 || removedLength < 0 || offset + removedLength > text.length()) {
+            throw new ParserException(String.format("Edit at %d removing %d chars is out of range for length %d",
+                    offset, removedLength, text.length()));
+        }
+        int lineDelta = countLines(insertedText, 0, insertedText.length()) - countLines(text, offset, offset + removedLength);
+        text.replace(offset, offset + removedLength, insertedText);
+        reparse(offset, removedLength, insertedText.length(), lineDelta);
+    }
+
+    public AST getProgram() {
+        if (error != null) {
+            throw error;
+        }
+        // Renumbering walks every node of the moved statements, but only once for any number of edits
+        for (int i = staleFrom; i < statements.size(); i++) {
+            statements.get(i).moveNode(line(i));
+        }
+        staleFrom = java.lang.Integer.MAX_VALUE;
+        Compound program = new Compound(nodes);
+        if (statements.isEmpty()) {
+            program.setPosition(emptyLine, emptyColumn);
+        } else {
+            program.setPosition(line(0), statements.get(0).column);
+        }
+        return program;
+    }
+
+    private void reparse(int offset, int removedLength, int insertedLength, int lineDelta) {
+        int oldEnd = offset + removedLength;
+        int editEnd = offset + insertedLength;
+        int first = statementBefore(offset);
+        // Statements starting inside the removed text are gone; the ones after it are candidates for reuse
+        int reusable = Math.min(first + 1, statements.size());
+        while (reusable < statements.size() && start(reusable) < oldEnd) {
+            reusable++;
+        }
+        if (damaged >= 0) {
+            first = Math.min(first, damaged);
+            reusable = Math.max(reusable, damaged + 1);
+        }
+        moveShift(reusable);
+        shiftOffset += insertedLength - removedLength;
+        shiftLines += lineDelta;
+        if (lineDelta != 0 || staleFrom != java.lang.Integer.MAX_VALUE) {
+            staleFrom = Math.min(staleFrom, first);
+        }
+
+        int windowStart = first == 0 ? 0 : start(first);
+        int windowLine = first == 0 ? 1 : line(first);
+        int windowColumn = first == 0 ? 1 : statements.get(first).column;
+        Tracker tracker = new Tracker(windowStart, new Lexer(new TextReader(text, windowStart), windowLine, windowColumn));
+        Parser parser = new Parser(tracker);
+        List<Statement> parsed = new ArrayList<>();
+        int end = statements.size();
+        int next = reusable;
+
+        ParseEvent event = new ParseEvent();
+        long allocated = Allocations.currentThread();
+        event.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            while (parser.hasNextStatement()) {
+                int statementStart = tracker.offset;
+                while (next < statements.size() && start(next) < statementStart) {
+                    next++;
+                }
+                // Past the edit and on a later line, so the reused statement's columns are unchanged
+                if (next < statements.size() && start(next) == statementStart
+                        && statementStart >= editEnd && containsNewline(text, editEnd, statementStart)) {
+                    end = next;
+                    break;
+                }
+                Token token = tracker.token;
+                parsed.add(new Statement(statementStart, token.getLine(), token.getColumn(), parser.parseStatement()));
+            }
+            failed = false;
+        } catch (RuntimeException e) {
+            // Statements on the line the edit ends on may have changed columns, so they join the failed text
+            while (reusable < statements.size() && !containsNewline(text, editEnd, start(reusable))) {
+                reusable++;
+            }
+            Statement from = statements.isEmpty() ? null : statements.get(first);
+            Statement failure = from == null ? new Statement(0, 1, 1, null) : new Statement(windowStart, windowLine, from.column, null);
+            statements.subList(first, reusable).clear();
+            statements.add(first, failure);
+            nodes.subList(first, reusable).clear();
+            nodes.add(first, null);
+            shiftFrom = first + 1;
+            damaged = first;
+            error = e;
+            throw e;
+        } finally {
+            event.tokenCount = parser.getTokenCount();
+            event.nodeCount = parser.getNodeCount();
+            event.allocatedBytes = Allocations.currentThread() - allocated;
+            TOKENS.add(event.tokenCount);
+            NODES.add(event.nodeCount);
+            PhaseMetrics.PARSE.record(System.nanoTime() - start, event.allocatedBytes, failed);
+            event.commit();
+        }
+        List<Statement> replaced = statements.subList(first, end);
+        replaced.clear();
+        replaced.addAll(parsed);
+        List<AST> replacedNodes = nodes.subList(first, end);
+        replacedNodes.clear();
+        for (Statement statement : parsed) {
+            replacedNodes.add(statement.node);
+        }
+        shiftFrom = first + parsed.size();
+        if (statements.isEmpty()) {
+            emptyLine = tracker.token.getLine();
+            emptyColumn = tracker.token.getColumn();
+        }
+        damaged = -1;
+        error = null;
+        REPARSED.add(parsed.size());
+        REUSED.add(statements.size() - parsed.size());
+    }
+
+    private int start(int index) {
+        return statements.get(index).start + (index >= shiftFrom ? shiftOffset : 0);
+    }
+
+    private int line(int index) {
+        return statements.get(index).line + (index >= shiftFrom ? shiftLines : 0);
+    }
+
+    // Settles the pending shift into the statements between the old and the new boundary
+    private void moveShift(int index) {
+        if (shiftOffset != 0 || shiftLines != 0) {
+            for (int i = shiftFrom; i < index; i++) {
+                statements.get(i).move(shiftOffset, shiftLines);
+            }
+            for (int i = index; i < shiftFrom; i++) {
+                statements.get(i).move(-shiftOffset, -shiftLines);
+            }
+        }
+        shiftFrom = index;
+    }
+
+    // Index of the last statement starting before offset. An edit right at a statement's start may join
+    // the previous statement's last token, so that statement is reparsed too.
+    private int statementBefore(int offset) {
+        int low = 0;
+        int high = statements.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (start(mid) < offset) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return Math.max(high, 0);
+    }
+
+    private static int countLines(CharSequence chars, int from, int to) {
+        int lines = 0;
+        for (int i = from; i < to; i++) {
+            if (chars.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    private static boolean containsNewline(CharSequence chars, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (chars.charAt(i) == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Statement {
+        private int start;
+        private int line;
+        private final int column;
+        private final AST node;
+        // Line the node positions were last set for; reused nodes catch up when the program is handed out
+        private int nodeLine;
+
+        private Statement(int start, int line, int column, AST node) {
+            this.start = start;
+            this.line = line;
+            this.column = column;
+            this.node = node;
+            this.nodeLine = line;
+        }
+
+        private void move(int offset, int lines) {
+            start += offset;
+            line += lines;
+        }
+
+        private void moveNode(int currentLine) {
+            if (node != null && nodeLine != currentLine) {
+                shiftLines(node, currentLine - nodeLine);
+                nodeLine = currentLine;
+            }
+        }
+
+        private static void shiftLines(AST node, int delta) {
+            if (node.getLine() != 0) {
+                node.setPosition(node.getLine() + delta, node.getColumn());
+            }
+            for (AST child : node.getChildren()) {
+                shiftLines(child, delta);
+            }
+        }
+    }
+
+    // Remembers the offset of the parser's lookahead token, which is always the last token handed out
+    private static final class Tracker implements TokenSource {
+        private final int base;
+        private final Lexer lexer;
+        private Token token;
+        private int offset;
+
+        private Tracker(int base, Lexer lexer) {
+            this.base = base;
+            this.lexer = lexer;
+        }
+
+        @Override
+        public Token getNextToken() {
+            token = lexer.getNextToken();
+            offset = base + lexer.getTokenOffset();
+            return token;
+        }
+    }
+
+    // Source text with a gap at the last edit, so an edit moves the text between it and the previous edit
+    // rather than everything after it
+    private static final class GapBuffer implements CharSequence {
+        private char[] chars;
+        private int gapStart;
+        private int gapEnd;
+
+        private GapBuffer(String text) {
+            chars = new char[text.length() + 64];
+            text.getChars(0, text.length(), chars, 0);
+            gapStart = text.length();
+            gapEnd = chars.length;
+        }
+
+        private void replace(int start, int end, String inserted) {
+            moveGap(start);
+            gapEnd += end - start;
+            if (inserted.length() > gapEnd - gapStart) {
+                int capacity = Math.max(chars.length * 2, length() + inserted.length() + 64);
+                char[] grown = new char[capacity];
+                System.arraycopy(chars, 0, grown, 0, gapStart);
+                int tail = chars.length - gapEnd;
+                System.arraycopy(chars, gapEnd, grown, capacity - tail, tail);
+                chars = grown;
+                gapEnd = capacity - tail;
+            }
+            inserted.getChars(0, inserted.length(), chars, gapStart);
+            gapStart += inserted.length();
+        }
+
+        private void moveGap(int position) {
+            if (position < gapStart) {
+                int count = gapStart - position;
+                System.arraycopy(chars, position, chars, gapEnd - count, count);
+                gapStart -= count;
+                gapEnd -= count;
+            } else if (position > gapStart) {
+                int count = position - gapStart;
+                System.arraycopy(chars, gapEnd, chars, gapStart, count);
+                gapStart += count;
+                gapEnd += count;
+            }
+        }
+
+        @Override
+        public int length() {
+            return chars.length - (gapEnd - gapStart);
+        }
+
+        @Override
+        public char charAt(int index) {
+            return index < gapStart ? chars[index] : chars[index + gapEnd - gapStart];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, 0, gapStart) + new String(chars, gapEnd, chars.length - gapEnd);
+        }
+    }
+
+    // Reads the source from an offset without copying the rest of it
+    private static final class TextReader extends Reader {
+        private final GapBuffer text;
+        private int position;
+
+        private TextReader(GapBuffer text, int position) {
+            this.text = text;
+            this.position = position;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            int count = Math.min(length, text.length() - position);
+            if (count <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = text.charAt(position + i);
+            }
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package parser;
+
+import lexer.CompactLexer;
+import parser.AST.AST;
+import parser.AST.Compound;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Lexes and parses a large source as chunks on a fork-join pool. Chunks are split at the start of a line
+// that follows a top-level ';', so every chunk starts a statement in a clean lexer and parser state and
+// its columns match the whole source; only its first line number has to be passed on. The children of the
+// chunk programs are joined in source order, and the first failing chunk's exception is rethrown, so the
+// result and any error are the same as a sequential parse.
+public class ParallelParser {
+    static final int MIN_CHUNK_SIZE = java.lang.Integer.getInteger("openwz.parse.chunkSize", 1 << 20);
+
+    private ParallelParser() {
+    }
+
+    public static AST parse(ByteBuffer source) {
+        return parse(source, ForkJoinPool.commonPool());
+    }
+
+    public static AST parse(ByteBuffer source, ForkJoinPool pool) {
+        return parse(source, pool, MIN_CHUNK_SIZE);
+    }
+
+    static AST parse(ByteBuffer source, ForkJoinPool pool, int minChunkSize) {
+        int chunkSize = Math.max(minChunkSize, source.limit() / (pool.getParallelism() * 4));
+        Splitter splitter = new Splitter(source, chunkSize);
+        int[] split = source.limit() < 2 * chunkSize ? null : splitter.next();
+        if (split == null) {
+            return new Parser(new CompactLexer(source).tokenize().cursor()).parseProgram();
+        }
+
+        // Chunks are submitted as their ends are found, so the scan overlaps with parsing the earlier chunks
+        List<ForkJoinTask<Object>> chunks = new ArrayList<>();
+        int start = 0;
+        int line = 1;
+        while (true) {
+            int end = split != null ? split[0] : source.limit();
+            ByteBuffer chunk = source.slice(start, end - start);
+            int firstLine = line;
+            chunks.add(pool.submit(() -> parseChunk(chunk, firstLine)));
+            if (split == null) {
+                break;
+            }
+            start = end;
+            line = split[1];
+            split = splitter.next();
+        }
+
+        Compound program = null;
+        try {
+            for (ForkJoinTask<Object> chunk : chunks) {
+                Object result = chunk.join();
+                if (result instanceof RuntimeException) {
+                    throw (RuntimeException) result;
+                } else if (result instanceof Error) {
+                    throw (Error) result;
+                }
+                AST parsed = (AST) result;
+                if (program == null) {
+                    program = (Compound) new Compound().withPositionOf(parsed);
+                }
+                for (AST statement : parsed.getChildren()) {
+                    program.addChild(statement);
+                }
+            }
+            return program;
+        } finally {
+            for (ForkJoinTask<Object> chunk : chunks) {
+                chunk.cancel(false);
+            }
+        }
+    }
+
+    // Failures are returned rather than thrown: a ForkJoinTask rethrows a failure from another thread as a
+    // new exception wrapping it, which would no longer match a sequential parse
+    private static Object parseChunk(ByteBuffer chunk, int firstLine) {
+        try {
+            return new Parser(new CompactLexer(chunk, firstLine).tokenize().cursor()).parseProgram();
+        } catch (RuntimeException | StackOverflowError e) {
+            return e;
+        }
+    }
+
+    // Finds line starts at least chunkSize apart that follow a complete top-level statement. The scan skips
+    // strings and comments like the lexer, tracks bracket depth, and ignores the two ';' of a for header, so
+    // it only stops where the parser would be between statements.
+    static final class Splitter {
+        private final ByteBuffer source;
+        private final int length;
+        private final int chunkSize;
+        private int position;
+        private int line = 1;
+        private int depth;
+        private int headerSemicolons;
+        private boolean afterStatement;
+
+        Splitter(ByteBuffer source, int chunkSize) {
+            this.source = source;
+            this.length = source.limit();
+            this.chunkSize = chunkSize;
+        }
+
+        // Offset and line number of the next split point, or null when the rest is one chunk
+        int[] next() {
+            int next = position + chunkSize;
+            while (position < length) {
+                int c = source.get(position);
+                if (c == '\n') {
+                    position++;
+                    line++;
+                    if (afterStatement && position >= next && position < length) {
+                        return new int[]{position, line};
+                    }
+                } else if (c == ' ' || c == '\t' || c == '\r' || c == '\f') {
+                    position++;
+                } else if (c == '/' && position + 1 < length && source.get(position + 1) == '/') {
+                    while (position < length && source.get(position) != '\n') {
+                        position++;
+                    }
+                } else if (c == '"') {
+                    position++;
+                    while (position < length && source.get(position) != '"') {
+                        if (source.get(position) == '\n') {
+                            line++;
+                        }
+                        position++;
+                    }
+                    position++;
+                    afterStatement = false;
+                } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                    int start = position;
+                    while (position < length && isIdentifierPart(source.get(position))) {
+                        position++;
+                    }
+                    if (depth == 0 && position - start == 3 && source.get(start) == 'f'
+                            && source.get(start + 1) == 'o' && source.get(start + 2) == 'r') {
+                        headerSemicolons = 2;
+                    }
+                    afterStatement = false;
+                } else {
+                    if (c == '(' || c == '[' || c == '{') {
+                        depth++;
+                    } else if (c == ')' || c == ']' || c == '}') {
+                        depth--;
+                    }
+                    afterStatement = c == ';' && depth == 0 && headerSemicolons == 0;
+                    if (c == ';' && depth == 0 && headerSemicolons > 0) {
+                        headerSemicolons--;
+                    }
+                    position++;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static boolean isIdentifierPart(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+}
@@ -1,55 +1,81 @@
 package parser;
 
 import lexer.*;
-import interpreter.Environment;
 import lexer.Token;
+import metrics.Allocations;
+import metrics.ParseEvent;
+import metrics.PhaseMetrics;
 import parser.AST.*;
+import parser.AST.Boolean;
+import parser.AST.Integer;
+import resolver.FunctionResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.LongAdder;
 
 public class Parser {
-    private final Lexer lexer;
+    private static final LongAdder TOKENS = PhaseMetrics.PARSE.counter("tokens");
+    private static final LongAdder NODES = PhaseMetrics.PARSE.counter("nodes");
+
+    private final TokenSource tokens;
     private Token currentToken;
+    private TokenType previousType;
+    private boolean inFunction;
+    private int tokenCount;
+    private int nodeCount;
 
-    public Parser(Lexer lexer) {
-        this.lexer = lexer;
-        this.currentToken = lexer.getNextToken();
+    public Parser(TokenSource tokens) {
+        this.tokens = tokens;
+        this.currentToken = tokens.getNextToken();
     }
 
     private void eat(TokenType type) {
         if (currentToken.getType() == type) {
-            currentToken = lexer.getNextToken();
+            previousType = type;
+            currentToken = tokens.getNextToken();
+            tokenCount++;
         } else {
             throw new ParserException("Expected token " + type + " but got " + currentToken.getType());
         }
     }
 
+    private AST at(Token token, AST node) {
+        nodeCount++;
+        return node.setPosition(token.getLine(), token.getColumn());
+    }
+
     private AST factor() {
         Token token = currentToken;
         if (token.getType() == TokenType.NUMBER) {
             eat(TokenType.NUMBER);
-            return new Integer((int) token.getValue());
+            return at(token, new Integer((int) token.getValue()));
         } else if (token.getType() == TokenType.STRING) {
             eat(TokenType.STRING);
-            return new StringNode((String) token.getValue());
-        } else if (token.getType() == TokenType.BOOLEAN || token.getType() == TokenType.LPAREN) {
+            return postfix(at(token, new StringNode((String) token.getValue())));
+        } else if (token.getType() == TokenType.BOOLEAN) {
             return parseBoolean();
         } else if (token.getType() == TokenType.LBRACKET) {
-            return parseArray();
+            return postfix(parseArray());
+        } else if (token.getType() == TokenType.LEFT_BRACE) {
+            return postfix(parseMap());
         } else if (token.getType() == TokenType.IDENTIFIER) {
-            return parseVar();
+            return postfix(parseVar());
         } else if (token.getType() == TokenType.MINUS) {
             eat(TokenType.MINUS);
-            return new UnaryOp(TokenType.MINUS, factor());
+            return at(token, new UnaryOp(TokenType.MINUS, factor()));
         } else if (token.getType() == TokenType.PLUS) {
             eat(TokenType.PLUS);
             return factor();
         } else if (token.getType() == TokenType.NOT) {
             eat(TokenType.NOT);
-            return new UnaryOp(TokenType.NOT, factor());
+            return at(token, new UnaryOp(TokenType.NOT, factor()));
         } else if (token.getType() == TokenType.LPAREN) {
             eat(TokenType.LPAREN);
             AST node = expr();
             eat(TokenType.RPAREN);
-            return node;
+            return postfix(node);
         } else {
             throw new ParserException("Unexpected token: " + token);
         }
@@ -61,89 +87,293 @@ public class Parser {
             Token token = currentToken;
             if (token.getType() == TokenType.MULT) {
                 eat(TokenType.MULT);
-                left = new BinOp(TokenType.MULT, left, factor());
+                left = at(token, new BinOp(TokenType.MULT, left, factor()));
             } else if (token.getType() == TokenType.DIV) {
                 eat(TokenType.DIV);
-                left = new BinOp(TokenType.DIV, left, factor());
+                left = at(token, new BinOp(TokenType.DIV, left, factor()));
             }
         }
         return left;
     }
 
     private AST expr() {
+        AST left = logicalAnd();
+        while (currentToken.getType() == TokenType.OR) {
+            Token token = currentToken;
+            eat(TokenType.OR);
+            left = at(token, new BinOp(TokenType.OR, left, logicalAnd()));
+        }
+        return left;
+    }
+
+    private AST logicalAnd() {
+        AST left = equality();
+        while (currentToken.getType() == TokenType.AND) {
+            Token token = currentToken;
+            eat(TokenType.AND);
+            left = at(token, new BinOp(TokenType.AND, left, equality()));
+        }
+        return left;
+    }
+
+    private AST equality() {
+        AST left = comparison();
+        while (currentToken.getType() == TokenType.EQ || currentToken.getType() == TokenType.NEQ) {
+            Token token = currentToken;
+            eat(token.getType());
+            left = at(token, new BinOp(token.getType(), left, comparison()));
+        }
+        return left;
+    }
+
+    private AST comparison() {
+        AST left = additive();
+        while (currentToken.getType() == TokenType.LT || currentToken.getType() == TokenType.GT
+                || currentToken.getType() == TokenType.LTE || currentToken.getType() == TokenType.GTE) {
+            Token token = currentToken;
+            eat(token.getType());
+            left = at(token, new BinOp(token.getType(), left, additive()));
+        }
+        return left;
+    }
+
+    private AST additive() {
         AST left = term();
         while (currentToken.getType() == TokenType.PLUS || currentToken.getType() == TokenType.MINUS) {
             Token token = currentToken;
             if (token.getType() == TokenType.PLUS) {
                 eat(TokenType.PLUS);
-                left = new BinOp(TokenType.PLUS, left, term());
+                left = at(token, new BinOp(TokenType.PLUS, left, term()));
             } else if (token.getType() == TokenType.MINUS) {
                 eat(TokenType.MINUS);
-                left = new BinOp(TokenType.MINUS, left, term());
+                left = at(token, new BinOp(TokenType.MINUS, left, term()));
             }
         }
         return left;
     }
 
     private AST parseLet() {
+        Token let = currentToken;
         eat(TokenType.LET);
         Token token = currentToken;
         eat(TokenType.IDENTIFIER);
         String varName = (String) token.getValue();
-        eat(TokenType.EQUALS);
+        eat(TokenType.EQUAL);
         AST expr = expr();
-        return new Assign(varName, expr);
+        return at(let, new Assignment(varName, expr));
     }
 
     private AST parsePrint() {
+        Token print = currentToken;
         eat(TokenType.PRINT);
         AST expr = expr();
-        return new Print(expr);
+        return at(print, new Print(expr));
     }
 
     private AST parseVar() {
         Token token = currentToken;
         eat(TokenType.IDENTIFIER);
-        if (currentToken.getType() == TokenType.LBRACKET) {
-            eat(TokenType.LBRACKET);
-            AST index = expr();
-            eat(TokenType.RBRACKET);
-            return new ArrayVar((String) token.getValue(), index);
-        } else {
-            return new Var((String) token.getValue());
+        return at(token, new Var((String) token.getValue()));
+    }
+
+    // Calls, indexing and method calls bind tighter than any operator: f(x), a[i][j], a.length()
+    private AST postfix(AST node) {
+        while (currentToken.getType() == TokenType.LBRACKET || currentToken.getType() == TokenType.DOT
+                || currentToken.getType() == TokenType.LPAREN) {
+            Token token = currentToken;
+            if (token.getType() == TokenType.LPAREN) {
+                node = at(token, new Call(node, parseArguments()));
+            } else if (token.getType() == TokenType.LBRACKET) {
+                eat(TokenType.LBRACKET);
+                AST index = expr();
+                eat(TokenType.RBRACKET);
+                node = at(token, new ArrayVar(node, index));
+            } else {
+                eat(TokenType.DOT);
+                Token name = currentToken;
+                eat(TokenType.IDENTIFIER);
+                node = at(name, new MethodCall(node, (String) name.getValue(), parseArguments()));
+            }
         }
+        return node;
+    }
+
+    private List<AST> parseArguments() {
+        eat(TokenType.LPAREN);
+        List<AST> args = new ArrayList<>();
+        if (currentToken.getType() != TokenType.RPAREN) {
+            args.add(expr());
+            while (currentToken.getType() == TokenType.COMMA) {
+                eat(TokenType.COMMA);
+                args.add(expr());
+            }
+        }
+        eat(TokenType.RPAREN);
+        return args;
     }
 
     private AST parseBoolean() {
         Token token = currentToken;
-        if (token.getType() == TokenType.BOOLEAN) {
-            eat(TokenType.BOOLEAN);
-            return new BooleanNode((Boolean) token.getValue());
-        } else {
-            eat(TokenType.LPAREN);
-            AST expr = expr();
-            eat(TokenType.RPAREN);
-            return new BooleanNode(expr.execute(new Environment()));
-        }
+        eat(TokenType.BOOLEAN);
+        return at(token, new Boolean((boolean) token.getValue()));
     }
 
     private AST parseArray() {
+        Token token = currentToken;
         eat(TokenType.LBRACKET);
-        AST firstElem = expr();
-        eat(TokenType.COMMA);
-        AST secondElem = expr();
+        List<AST> elements = new ArrayList<>();
+        if (currentToken.getType() != TokenType.RBRACKET) {
+            elements.add(expr());
+            while (currentToken.getType() == TokenType.COMMA) {
+                eat(TokenType.COMMA);
+                elements.add(expr());
+            }
+        }
         eat(TokenType.RBRACKET);
-        return new Array(firstElem, secondElem);
+        return at(token, new Array(elements));
     }
 
+    private AST parseMap() {
+        Token token = currentToken;
+        eat(TokenType.LEFT_BRACE);
+        List<AST> keys = new ArrayList<>();
+        List<AST> values = new ArrayList<>();
+        while (currentToken.getType() != TokenType.RIGHT_BRACE) {
+            if (!keys.isEmpty()) {
+                eat(TokenType.COMMA);
+            }
+            keys.add(expr());
+            eat(TokenType.COLON);
+            values.add(expr());
+        }
+        eat(TokenType.RIGHT_BRACE);
+        return at(token, new MapNode(keys, values));
+    }
+
+    // x = value, a[i] = value and m[key] = value; the target is parsed as an ordinary expression first
+    private AST parseExpressionStatement() {
+        Token token = currentToken;
+        AST node = expr();
+        if (currentToken.getType() == TokenType.EQUAL) {
+            eat(TokenType.EQUAL);
+            if (node instanceof Var) {
+                return at(token, new Assignment(((Var) node).getName(), expr()));
+            } else if (node instanceof ArrayVar) {
+                ArrayVar target = (ArrayVar) node;
+                return at(token, new ArrayAssignment(target.getArray(), target.getIndex(), expr()));
+            }
+            throw new ParserException("Invalid assignment target: " + node);
+        }
+        return node;
+    }
+
+    // if c then a else b; either branch may be a block, and else if chains
     private AST parseIfElse() {
+        Token token = currentToken;
         eat(TokenType.IF);
         AST condition = expr();
         eat(TokenType.THEN);
-        AST ifBody = expr();
-        eat(TokenType.ELSE);
-        AST elseBody = expr();
-        return new IfElse(condition, ifBody, elseBody);
+        AST ifBody = parseBody();
+        AST elseBody;
+        if (currentToken.getType() == TokenType.ELSE) {
+            eat(TokenType.ELSE);
+            elseBody = parseBody();
+        } else {
+            elseBody = at(token, new Compound());
+        }
+        return at(token, new IfElse(condition, ifBody, elseBody));
+    }
+
+    private AST parseBody() {
+        if (currentToken.getType() == TokenType.LEFT_BRACE) {
+            return parseBlock();
+        }
+        return parse();
+    }
+
+    private AST parseBlock() {
+        Compound block = new Compound();
+        at(currentToken, block);
+        eat(TokenType.LEFT_BRACE);
+        while (hasNextStatement() && currentToken.getType() != TokenType.RIGHT_BRACE) {
+            block.addChild(parseStatement());
+        }
+        eat(TokenType.RIGHT_BRACE);
+        return block;
+    }
+
+    // fun name(a, b) { ... } declares a global; functions cannot be nested
+    private AST parseFunction() {
+        Token token = currentToken;
+        eat(TokenType.FUN);
+        if (inFunction) {
+            throw new ParserException("Functions can only be declared at the top level");
+        }
+        Token name = currentToken;
+        eat(TokenType.IDENTIFIER);
+        eat(TokenType.LPAREN);
+        List<String> params = new ArrayList<>();
+        if (currentToken.getType() != TokenType.RPAREN) {
+            params.add(parseParameter());
+            while (currentToken.getType() == TokenType.COMMA) {
+                eat(TokenType.COMMA);
+                params.add(parseParameter());
+            }
+        }
+        eat(TokenType.RPAREN);
+        inFunction = true;
+        AST body;
+        try {
+            body = parseBlock();
+        } finally {
+            inFunction = false;
+        }
+        String functionName = (String) name.getValue();
+        AST function = at(token, FunctionResolver.resolve(functionName, params, body));
+        return at(token, new Assignment(functionName, function));
+    }
+
+    private String parseParameter() {
+        Token token = currentToken;
+        eat(TokenType.IDENTIFIER);
+        return (String) token.getValue();
+    }
+
+    private AST parseReturn() {
+        Token token = currentToken;
+        eat(TokenType.RETURN);
+        if (!inFunction) {
+            throw new ParserException("Return outside of a function");
+        }
+        AST expr;
+        if (currentToken.getType() == TokenType.SEMI || currentToken.getType() == TokenType.RIGHT_BRACE
+                || currentToken.getType() == TokenType.EOF) {
+            expr = at(token, new Compound());
+        } else {
+            expr = expr();
+        }
+        return at(token, new Return(expr));
+    }
+
+    private AST parseWhile() {
+        Token token = currentToken;
+        eat(TokenType.WHILE);
+        AST condition = expr();
+        AST body = parseBlock();
+        return at(token, new While(condition, body));
+    }
+
+    // for let i = 0; i < n; i = i + 1 { ... }
+    private AST parseFor() {
+        Token token = currentToken;
+        eat(TokenType.FOR);
+        AST init = parse();
+        eat(TokenType.SEMI);
+        AST condition = expr();
+        eat(TokenType.SEMI);
+        AST update = parse();
+        AST body = parseBlock();
+        return at(token, new For(init, condition, update, body));
     }
 
     private AST parse() {
@@ -158,18 +388,122 @@ public class Parser {
             case IF:
                 node = parseIfElse();
                 break;
+            case WHILE:
+                node = parseWhile();
+                break;
+            case FOR:
+                node = parseFor();
+                break;
+            case LEFT_BRACE:
+                node = parseBlock();
+                break;
+            case FUN:
+                node = parseFunction();
+                break;
+            case RETURN:
+                node = parseReturn();
+                break;
             default:
-                node = expr();
+                node = parseExpressionStatement();
                 break;
         }
         return node;
     }
 
-    public AST parseProgram() {
+    public boolean hasNextStatement() {
+        while (currentToken.getType() == TokenType.SEMI) {
+            eat(TokenType.SEMI);
+        }
+        return currentToken.getType() != TokenType.EOF;
+    }
+
+    public AST parseStatement() {
         AST node = parse();
-        if (currentToken.getType() != TokenType.EOF) {
+        // Semicolons are optional before a closing brace and after a statement that ends with one
+        if (currentToken.getType() == TokenType.SEMI) {
+            eat(TokenType.SEMI);
+        } else if (currentToken.getType() != TokenType.EOF && currentToken.getType() != TokenType.RIGHT_BRACE
+                && previousType != TokenType.RIGHT_BRACE) {
             throw new ParserException("Unexpected token: " + currentToken);
         }
         return node;
     }
+
+    int getTokenCount() {
+        return tokenCount;
+    }
+
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    // Hands each statement to the consumer as soon as it is parsed, as a streamed run executes them. The stream
+    // is reported as one parse, without the time and allocation spent in the consumer.
+    public void parseStatements(Consumer<AST> consumer) {
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        int startTokens = tokenCount;
+        int startNodes = nodeCount;
+        long elapsed = 0;
+        long allocatedBytes = 0;
+        long start = System.nanoTime();
+        long allocated = Allocations.currentThread();
+        boolean parsing = true;
+        boolean failed = true;
+        try {
+            while (hasNextStatement()) {
+                AST statement = parseStatement();
+                elapsed += System.nanoTime() - start;
+                allocatedBytes += Allocations.currentThread() - allocated;
+                parsing = false;
+                consumer.accept(statement);
+                parsing = true;
+                start = System.nanoTime();
+                allocated = Allocations.currentThread();
+            }
+            failed = false;
+        } finally {
+            if (parsing) {
+                elapsed += System.nanoTime() - start;
+                allocatedBytes += Allocations.currentThread() - allocated;
+            } else {
+                // The consumer failed, not the parse
+                failed = false;
+            }
+            event.tokenCount = tokenCount - startTokens;
+            event.nodeCount = nodeCount - startNodes;
+            event.allocatedBytes = allocatedBytes;
+            TOKENS.add(event.tokenCount);
+            NODES.add(event.nodeCount);
+            PhaseMetrics.PARSE.record(elapsed, allocatedBytes, failed);
+            event.commit();
+        }
+    }
+
+    public AST parseProgram() {
+        ParseEvent event = new ParseEvent();
+        long allocated = Allocations.currentThread();
+        event.begin();
+        long start = System.nanoTime();
+        int startTokens = tokenCount;
+        int startNodes = nodeCount;
+        boolean failed = true;
+        try {
+            Compound program = new Compound();
+            at(currentToken, program);
+            while (hasNextStatement()) {
+                program.addChild(parseStatement());
+            }
+            failed = false;
+            return program;
+        } finally {
+            event.tokenCount = tokenCount - startTokens;
+            event.nodeCount = nodeCount - startNodes;
+            event.allocatedBytes = Allocations.currentThread() - allocated;
+            TOKENS.add(event.tokenCount);
+            NODES.add(event.nodeCount);
+            PhaseMetrics.PARSE.record(System.nanoTime() - start, event.allocatedBytes, failed);
+            event.commit();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package profiler;
+
+public class NodeProfile {
+    private final String label;
+    private final int line;
+    private final int column;
+    private final NodeProfile parent;
+    private long count;
+    private long totalNanos;
+    private long selfNanos;
+
+    NodeProfile(String label, int line, int column, NodeProfile parent) {
+        this.label = label;
+        this.line = line;
+        this.column = column;
+        this.parent = parent;
+    }
+
+    void record(long total, long self) {
+        count++;
+        totalNanos += total;
+        selfNanos += self;
+    }
+
+    void reset() {
+        count = 0;
+        totalNanos = 0;
+        selfNanos = 0;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public NodeProfile getParent() {
+        return parent;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getSelfNanos() {
+        return selfNanos;
+    }
+
+    public String getLocation() {
+        return line == 0 ? "?" : line + ":" + column;
+    }
+
+    @Override
+    public String toString() {
+        return label + " @" + getLocation();
+    }
+}
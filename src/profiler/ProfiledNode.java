@@ -0,0 +1,76 @@
+package profiler;
+
+import interpreter.Environment;
+import parser.AST.AST;
+
+import java.util.List;
+
+// Only present in trees built by Profiler.instrument, so unprofiled runs never pay for the timing
+public class ProfiledNode extends AST {
+    private final AST delegate;
+    private final NodeProfile profile;
+    private final Profiler profiler;
+
+    ProfiledNode(AST delegate, NodeProfile profile, Profiler profiler) {
+        this.delegate = delegate;
+        this.profile = profile;
+        this.profiler = profiler;
+        withPositionOf(delegate);
+    }
+
+    public AST getDelegate() {
+        return delegate;
+    }
+
+    public NodeProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public List<AST> getChildren() {
+        return List.of(delegate);
+    }
+
+    @Override
+    public AST withChildren(List<AST> children) {
+        return new ProfiledNode(children.get(0), profile, profiler);
+    }
+
+    @Override
+    public Object execute(Environment env) {
+        long outerChildTime = profiler.enter();
+        long start = System.nanoTime();
+        try {
+            return delegate.execute(env);
+        } finally {
+            profiler.exit(profile, System.nanoTime() - start, outerChildTime);
+        }
+    }
+
+    @Override
+    public int executeInt(Environment env) {
+        long outerChildTime = profiler.enter();
+        long start = System.nanoTime();
+        try {
+            return delegate.executeInt(env);
+        } finally {
+            profiler.exit(profile, System.nanoTime() - start, outerChildTime);
+        }
+    }
+
+    @Override
+    public boolean executeBoolean(Environment env) {
+        long outerChildTime = profiler.enter();
+        long start = System.nanoTime();
+        try {
+            return delegate.executeBoolean(env);
+        } finally {
+            profiler.exit(profile, System.nanoTime() - start, outerChildTime);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -0,0 +1,168 @@
+package profiler;
+
+import lexer.TokenType;
+import parser.AST.AST;
+import parser.AST.Assignment;
+import parser.AST.BinOp;
+import parser.AST.MethodCall;
+import parser.AST.SlotAssignment;
+import parser.AST.SlotVar;
+import parser.AST.StringNode;
+import parser.AST.UnaryOp;
+import parser.AST.Var;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Wraps every node of a program in a ProfiledNode that counts calls and measures inclusive and self time.
+// Not thread-safe: a profiler belongs to one interpreter.
+public class Profiler {
+    private final List<NodeProfile> profiles = new ArrayList<>();
+    // Time spent in profiled children of the node currently executing
+    private long childTime;
+
+    public AST instrument(AST program) {
+        return instrument(program, null);
+    }
+
+    private AST instrument(AST node, NodeProfile parent) {
+        NodeProfile profile = new NodeProfile(describe(node), node.getLine(), node.getColumn(), parent);
+        profiles.add(profile);
+        List<AST> children = node.getChildren();
+        AST delegate = node;
+        if (!children.isEmpty()) {
+            List<AST> instrumented = new ArrayList<>(children.size());
+            for (AST child : children) {
+                instrumented.add(instrument(child, profile));
+            }
+            delegate = node.withChildren(instrumented).withPositionOf(node);
+        }
+        return new ProfiledNode(delegate, profile, this);
+    }
+
+    long enter() {
+        long outer = childTime;
+        childTime = 0;
+        return outer;
+    }
+
+    void exit(NodeProfile profile, long elapsed, long outerChildTime) {
+        profile.record(elapsed, elapsed - childTime);
+        childTime = outerChildTime + elapsed;
+    }
+
+    public List<NodeProfile> getProfiles() {
+        return profiles;
+    }
+
+    public void reset() {
+        for (NodeProfile profile : profiles) {
+            profile.reset();
+        }
+        childTime = 0;
+    }
+
+    public String report(int limit) {
+        List<NodeProfile> sorted = new ArrayList<>(profiles);
+        sorted.removeIf(profile -> profile.getCount() == 0);
+        sorted.sort(Comparator.comparingLong(NodeProfile::getSelfNanos).reversed());
+        long totalSelf = 0;
+        for (NodeProfile profile : sorted) {
+            totalSelf += profile.getSelfNanos();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%10s %7s %10s %10s  %-9s %s%n", "self ms", "self %", "total ms", "count", "location", "node"));
+        for (int i = 0; i < Math.min(limit, sorted.size()); i++) {
+            NodeProfile profile = sorted.get(i);
+            sb.append(String.format("%10.3f %6.2f%% %10.3f %10d  %-9s %s%n",
+                    profile.getSelfNanos() / 1e6,
+                    totalSelf == 0 ? 0.0 : 100.0 * profile.getSelfNanos() / totalSelf,
+                    profile.getTotalNanos() / 1e6,
+                    profile.getCount(),
+                    profile.getLocation(),
+                    profile.getLabel()));
+        }
+        return sb.toString();
+    }
+
+    // One line per node with self time, in the collapsed format read by flamegraph.pl and speedscope;
+    // the weight is self time in nanoseconds
+    public String collapsedStacks() {
+        StringBuilder sb = new StringBuilder();
+        for (NodeProfile profile : profiles) {
+            if (profile.getSelfNanos() <= 0) {
+                continue;
+            }
+            List<String> frames = new ArrayList<>();
+            for (NodeProfile frame = profile; frame != null; frame = frame.getParent()) {
+                frames.add(frame.toString().replace(';', ','));
+            }
+            for (int i = frames.size() - 1; i >= 0; i--) {
+                sb.append(frames.get(i));
+                sb.append(i == 0 ? " " : ";");
+            }
+            sb.append(profile.getSelfNanos()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String describe(AST node) {
+        String kind = node.getClass().getSimpleName();
+        if (node instanceof BinOp) {
+            return kind + " " + symbol(((BinOp) node).getOp());
+        } else if (node instanceof UnaryOp) {
+            return kind + " " + symbol(((UnaryOp) node).getOp());
+        } else if (node instanceof Var) {
+            return kind + " " + ((Var) node).getName();
+        } else if (node instanceof SlotVar) {
+            return kind + " " + ((SlotVar) node).getName();
+        } else if (node instanceof MethodCall) {
+            return kind + " ." + ((MethodCall) node).getName() + "()";
+        } else if (node instanceof Assignment) {
+            return kind + " " + ((Assignment) node).getVarName();
+        } else if (node instanceof SlotAssignment) {
+            return kind + " " + ((SlotAssignment) node).getVarName();
+        } else if (node instanceof StringNode) {
+            String value = ((StringNode) node).getValue();
+            return kind + " \"" + (value.length() > 20 ? value.substring(0, 20) + "..." : value) + "\"";
+        } else if (node instanceof parser.AST.Integer || node instanceof parser.AST.Boolean) {
+            return kind + " " + node;
+        }
+        return kind;
+    }
+
+    private static String symbol(TokenType op) {
+        switch (op) {
+            case PLUS:
+                return "+";
+            case MINUS:
+                return "-";
+            case MULT:
+                return "*";
+            case DIV:
+                return "/";
+            case EQ:
+                return "==";
+            case NEQ:
+                return "!=";
+            case LT:
+                return "<";
+            case GT:
+                return ">";
+            case LTE:
+                return "<=";
+            case GTE:
+                return ">=";
+            case AND:
+                return "&&";
+            case OR:
+                return "||";
+            case NOT:
+                return "not";
+            default:
+                return op.toString();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package resolver;
+
+import parser.AST.AST;
+import parser.AST.Assignment;
+import parser.AST.Call;
+import parser.AST.Compound;
+import parser.AST.FunctionNode;
+import parser.AST.IfElse;
+import parser.AST.LocalAssignment;
+import parser.AST.LocalVar;
+import parser.AST.Return;
+import parser.AST.TailCall;
+import parser.AST.Var;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Gives a function's parameters and locals their frame slots as soon as it is parsed, so calls work
+// whether or not the program later goes through the Resolver. As in Python, every name assigned
+// anywhere in the body is local to the function; other names refer to globals.
+public class FunctionResolver {
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final List<String> localNames = new ArrayList<>();
+
+    public static FunctionNode resolve(String name, List<String> params, AST body) {
+        FunctionResolver resolver = new FunctionResolver();
+        for (String param : params) {
+            if (resolver.slots.containsKey(param)) {
+                throw new ResolverException("Duplicate parameter " + param + " in function " + name);
+            }
+            resolver.declare(param);
+        }
+        resolver.collectLocals(body);
+        AST resolved = resolver.tail(resolver.resolveNode(body));
+        return new FunctionNode(name, resolver.localNames, params.size(), resolved);
+    }
+
+    private void declare(String name) {
+        if (!slots.containsKey(name)) {
+            slots.put(name, localNames.size());
+            localNames.add(name);
+        }
+    }
+
+    private void collectLocals(AST node) {
+        if (node instanceof Assignment) {
+            declare(((Assignment) node).getVarName());
+        }
+        for (AST child : node.getChildren()) {
+            collectLocals(child);
+        }
+    }
+
+    private AST resolveNode(AST node) {
+        if (node instanceof Var) {
+            Integer slot = slots.get(((Var) node).getName());
+            return slot == null ? node : new LocalVar(((Var) node).getName(), slot).withPositionOf(node);
+        } else if (node instanceof Assignment) {
+            Assignment assignment = (Assignment) node;
+            AST expr = resolveNode(assignment.getExpr());
+            return new LocalAssignment(assignment.getVarName(), slots.get(assignment.getVarName()), expr).withPositionOf(node);
+        }
+
+        List<AST> children = node.getChildren();
+        if (children.isEmpty()) {
+            return node;
+        }
+        List<AST> resolved = new ArrayList<>(children.size());
+        for (AST child : children) {
+            resolved.add(resolveNode(child));
+        }
+        return node.withChildren(resolved).withPositionOf(node);
+    }
+
+    // Rewrites the nodes whose value becomes the function's result: a return there needs no unwinding,
+    // and a call there becomes a tail call that reuses the frame
+    private AST tail(AST node) {
+        if (node instanceof Return) {
+            return tail(((Return) node).getExpr());
+        } else if (node instanceof Call && !(node instanceof TailCall)) {
+            return new TailCall(((Call) node).getCallee(), ((Call) node).getArgs()).withPositionOf(node);
+        } else if (node instanceof IfElse) {
+            IfElse ifElse = (IfElse) node;
+            return new IfElse(ifElse.getCondition(), tail(ifElse.getIfBody()), tail(ifElse.getElseBody())).withPositionOf(node);
+        } else if (node instanceof Compound && !node.getChildren().isEmpty()) {
+            List<AST> children = new ArrayList<>(node.getChildren());
+            int last = children.size() - 1;
+            children.set(last, tail(children.get(last)));
+            return node.withChildren(children).withPositionOf(node);
+        }
+        return node;
+    }
+}
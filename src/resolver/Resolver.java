@@ -0,0 +1,127 @@
+package resolver;
+
+import parser.AST.AST;
+import parser.AST.Assignment;
+import parser.AST.For;
+import parser.AST.FunctionNode;
+import parser.AST.IfElse;
+import parser.AST.SlotAssignment;
+import parser.AST.SlotVar;
+import parser.AST.Var;
+import parser.AST.While;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class Resolver {
+    private final Map<String, Integer> slotIndexes = new HashMap<>();
+    private final List<String> slotNames = new ArrayList<>();
+    private Set<String> defined;
+    // Function bodies may refer to globals defined after them; those are checked when read
+    private boolean inFunction;
+    // Whether function bodies read globals from the slots of this program. Statements resolved one at a
+    // time each get their own slots, so a function called from a later statement reads globals by name.
+    private final boolean globalSlotsInFunctions;
+
+    public Resolver(Collection<String> predefined) {
+        this(predefined, true);
+    }
+
+    public Resolver(Collection<String> predefined, boolean globalSlotsInFunctions) {
+        this.defined = new HashSet<>(predefined);
+        this.globalSlotsInFunctions = globalSlotsInFunctions;
+    }
+
+    public AST resolve(AST program) {
+        return resolveNode(program);
+    }
+
+    public String[] getSlotNames() {
+        return slotNames.toArray(new String[0]);
+    }
+
+    // Globals that are certainly defined once the resolved program has run
+    public Set<String> getDefinedNames() {
+        return defined;
+    }
+
+    private AST resolveNode(AST node) {
+        if (node instanceof Var) {
+            String name = ((Var) node).getName();
+            if (!inFunction && !defined.contains(name)) {
+                throw new ResolverException("Variable not defined: " + name);
+            }
+            return new SlotVar(name, slot(name)).withPositionOf(node);
+        } else if (node instanceof Assignment) {
+            Assignment assignment = (Assignment) node;
+            AST expr = resolveNode(assignment.getExpr());
+            defined.add(assignment.getVarName());
+            return new SlotAssignment(assignment.getVarName(), slot(assignment.getVarName()), expr).withPositionOf(node);
+        } else if (node instanceof IfElse) {
+            IfElse ifElse = (IfElse) node;
+            AST condition = resolveNode(ifElse.getCondition());
+            Set<String> before = defined;
+            defined = new HashSet<>(before);
+            AST ifBody = resolveNode(ifElse.getIfBody());
+            Set<String> afterIf = defined;
+            defined = new HashSet<>(before);
+            AST elseBody = resolveNode(ifElse.getElseBody());
+            // Only variables assigned on both paths are guaranteed to be defined afterwards
+            defined.retainAll(afterIf);
+            return new IfElse(condition, ifBody, elseBody).withPositionOf(node);
+        } else if (node instanceof FunctionNode) {
+            if (!globalSlotsInFunctions) {
+                return node;
+            }
+            boolean outer = inFunction;
+            inFunction = true;
+            AST body = resolveNode(((FunctionNode) node).getBody());
+            inFunction = outer;
+            return node.withChildren(List.of(body)).withPositionOf(node);
+        } else if (node instanceof While) {
+            While loop = (While) node;
+            AST condition = resolveNode(loop.getCondition());
+            Set<String> before = defined;
+            defined = new HashSet<>(before);
+            AST body = resolveNode(loop.getBody());
+            // The body may run zero times
+            defined = before;
+            return new While(condition, body).withPositionOf(node);
+        } else if (node instanceof For) {
+            For loop = (For) node;
+            AST init = resolveNode(loop.getInit());
+            AST condition = resolveNode(loop.getCondition());
+            Set<String> before = defined;
+            defined = new HashSet<>(before);
+            AST body = resolveNode(loop.getBody());
+            AST update = resolveNode(loop.getUpdate());
+            defined = before;
+            return new For(init, condition, update, body).withPositionOf(node);
+        }
+
+        List<AST> children = node.getChildren();
+        if (children.isEmpty()) {
+            return node;
+        }
+        List<AST> resolved = new ArrayList<>(children.size());
+        for (AST child : children) {
+            resolved.add(resolveNode(child));
+        }
+        return node.withChildren(resolved).withPositionOf(node);
+    }
+
+    private int slot(String name) {
+        Integer index = slotIndexes.get(name);
+        if (index == null) {
+            index = slotNames.size();
+            slotNames.add(name);
+            slotIndexes.put(name, index);
+        }
+        return index;
+    }
+}
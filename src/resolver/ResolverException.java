@@ -0,0 +1,7 @@
+package resolver;
+
+public class ResolverException extends RuntimeException {
+    public ResolverException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,267 @@
+package vm;
+
+import compiler.Chunk;
+import compiler.OpCode;
+import interpreter.ArrayValue;
+import interpreter.Environment;
+import interpreter.MapValue;
+import interpreter.Rope;
+
+public class VM {
+    private static final Object UNDEFINED = Environment.UNDEFINED;
+    // Marks a register whose value is the int at the same index of the int registers. Integers are never
+    // stored boxed, so integer arithmetic does not allocate.
+    private static final Object INT = new Object();
+
+    // Variables and frame slots are copied into registers for the run, and the slots the code uses are
+    // written back when it ends, so statements running in parallel on other slots keep their writes
+    public static Object run(Chunk chunk, Environment env) {
+        String[] slotNames = chunk.getSlotNames();
+        String[] frameSlotNames = chunk.getFrameSlotNames();
+        int frameBase = chunk.getFrameBase();
+        int frameSize = frameSlotNames.length;
+        Object[] constants = chunk.getConstants();
+        Object[] registers = new Object[chunk.getRegisterCount()];
+        int[] ints = new int[registers.length];
+        for (int i = 0; i < slotNames.length; i++) {
+            store(registers, ints, i, env.hasVariable(slotNames[i]) ? env.getVariable(slotNames[i]) : UNDEFINED);
+        }
+        for (int i = 0; i < frameSize; i++) {
+            store(registers, ints, frameBase + i, env.getSlot(i));
+        }
+        for (int i = 0; i < constants.length; i++) {
+            store(registers, ints, chunk.getConstantBase() + i, constants[i]);
+        }
+        try {
+            return execute(chunk, registers, ints, env);
+        } finally {
+            for (int i = 0; i < slotNames.length; i++) {
+                if (registers[i] != UNDEFINED) {
+                    env.setVariable(slotNames[i], registers[i] == INT ? (Object) ints[i] : registers[i]);
+                }
+            }
+            for (int i = 0; i < frameSize; i++) {
+                if (frameSlotNames[i] != null) {
+                    int register = frameBase + i;
+                    env.setSlot(i, registers[register] == INT ? (Object) ints[register] : registers[register]);
+                }
+            }
+        }
+    }
+
+    private static Object execute(Chunk chunk, Object[] registers, int[] ints, Environment env) {
+        final int[] code = chunk.getCode();
+        int pc = 0;
+        while (true) {
+            switch (code[pc]) {
+                case OpCode.MOVE: {
+                    int target = code[pc + 1];
+                    int source = code[pc + 2];
+                    if (registers[source] == UNDEFINED) {
+                        throw undefined(chunk, source);
+                    }
+                    registers[target] = registers[source];
+                    ints[target] = ints[source];
+                    pc += 3;
+                    break;
+                }
+                case OpCode.ADD: {
+                    int target = code[pc + 1];
+                    int left = code[pc + 2];
+                    int right = code[pc + 3];
+                    if (registers[left] == INT && registers[right] == INT) {
+                        ints[target] = ints[left] + ints[right];
+                        registers[target] = INT;
+                    } else {
+                        Object leftValue = operand(chunk, registers, ints, left);
+                        Object rightValue = operand(chunk, registers, ints, right);
+                        if (!Rope.isString(leftValue) && !Rope.isString(rightValue)) {
+                            throw invalidTypes("+", leftValue, rightValue);
+                        }
+                        registers[target] = Rope.concat(leftValue, rightValue);
+                    }
+                    pc += 4;
+                    break;
+                }
+                case OpCode.SUB: {
+                    int target = code[pc + 1];
+                    int left = code[pc + 2];
+                    int right = code[pc + 3];
+                    checkInts("-", chunk, registers, ints, left, right);
+                    ints[target] = ints[left] - ints[right];
+                    registers[target] = INT;
+                    pc += 4;
+                    break;
+                }
+                case OpCode.MUL: {
+                    int target = code[pc + 1];
+                    int left = code[pc + 2];
+                    int right = code[pc + 3];
+                    checkInts("*", chunk, registers, ints, left, right);
+                    ints[target] = ints[left] * ints[right];
+                    registers[target] = INT;
+                    pc += 4;
+                    break;
+                }
+                case OpCode.DIV: {
+                    int target = code[pc + 1];
+                    int left = code[pc + 2];
+                    int right = code[pc + 3];
+                    checkInts("/", chunk, registers, ints, left, right);
+                    ints[target] = ints[left] / ints[right];
+                    registers[target] = INT;
+                    pc += 4;
+                    break;
+                }
+                case OpCode.EQ:
+                case OpCode.NEQ: {
+                    int target = code[pc + 1];
+                    int left = code[pc + 2];
+                    int right = code[pc + 3];
+                    boolean equal;
+                    if (registers[left] == INT && registers[right] == INT) {
+                        equal = ints[left] == ints[right];
+                    } else {
+                        equal = Rope.valueEquals(operand(chunk, registers, ints, left), operand(chunk, registers, ints, right));
+                    }
+                    registers[target] = code[pc] == OpCode.EQ ? equal : !equal;
+                    pc += 4;
+                    break;
+                }
+                case OpCode.LT: {
+                    int left = code[pc + 2];
+                    int right = code[pc + 3];
+                    checkInts("<", chunk, registers, ints, left, right);
+                    registers[code[pc + 1]] = ints[left] < ints[right];
+                    pc += 4;
+                    break;
+                }
+                case OpCode.GT: {
+                    int left = code[pc + 2];
+                    int right = code[pc + 3];
+                    checkInts(">", chunk, registers, ints, left, right);
+                    registers[code[pc + 1]] = ints[left] > ints[right];
+                    pc += 4;
+                    break;
+                }
+                case OpCode.LTE: {
+                    int left = code[pc + 2];
+                    int right = code[pc + 3];
+                    checkInts("<=", chunk, registers, ints, left, right);
+                    registers[code[pc + 1]] = ints[left] <= ints[right];
+                    pc += 4;
+                    break;
+                }
+                case OpCode.GTE: {
+                    int left = code[pc + 2];
+                    int right = code[pc + 3];
+                    checkInts(">=", chunk, registers, ints, left, right);
+                    registers[code[pc + 1]] = ints[left] >= ints[right];
+                    pc += 4;
+                    break;
+                }
+                case OpCode.AND:
+                case OpCode.OR: {
+                    Object left = registers[code[pc + 2]];
+                    Object right = registers[code[pc + 3]];
+                    if (!(left instanceof Boolean && right instanceof Boolean)) {
+                        throw invalidTypes(code[pc] == OpCode.AND ? "&&" : "||",
+                                operand(chunk, registers, ints, code[pc + 2]), operand(chunk, registers, ints, code[pc + 3]));
+                    }
+                    registers[code[pc + 1]] = code[pc] == OpCode.AND ? (boolean) left && (boolean) right : (boolean) left || (boolean) right;
+                    pc += 4;
+                    break;
+                }
+                case OpCode.NEG: {
+                    int target = code[pc + 1];
+                    int operand = code[pc + 2];
+                    if (registers[operand] != INT) {
+                        operand(chunk, registers, ints, operand);
+                        throw new RuntimeException("Cannot negate non-integer value");
+                    }
+                    ints[target] = -ints[operand];
+                    registers[target] = INT;
+                    pc += 3;
+                    break;
+                }
+                case OpCode.NOT: {
+                    Object value = registers[code[pc + 2]];
+                    if (!(value instanceof Boolean)) {
+                        operand(chunk, registers, ints, code[pc + 2]);
+                        throw new RuntimeException("Cannot negate non-boolean value");
+                    }
+                    registers[code[pc + 1]] = !(boolean) value;
+                    pc += 3;
+                    break;
+                }
+                case OpCode.JUMP:
+                    pc = code[pc + 1];
+                    break;
+                case OpCode.JUMP_IF_FALSE:
+                case OpCode.JUMP_IF_TRUE: {
+                    Object condition = registers[code[pc + 1]];
+                    if (!(condition instanceof Boolean)) {
+                        throw new RuntimeException(String.format("Expected Boolean but got %s", typeName(operand(chunk, registers, ints, code[pc + 1]))));
+                    }
+                    boolean jump = (boolean) condition == (code[pc] == OpCode.JUMP_IF_TRUE);
+                    pc = jump ? code[pc + 2] : pc + 3;
+                    break;
+                }
+                case OpCode.PRINT:
+                    env.getOutput().println(operand(chunk, registers, ints, code[pc + 2]));
+                    registers[code[pc + 1]] = null;
+                    pc += 3;
+                    break;
+                case OpCode.RETURN:
+                    return operand(chunk, registers, ints, code[pc + 1]);
+                default:
+                    throw new VMException("Unknown opcode: " + code[pc]);
+            }
+        }
+    }
+
+    private static void store(Object[] registers, int[] ints, int register, Object value) {
+        if (value instanceof Integer) {
+            registers[register] = INT;
+            ints[register] = (int) value;
+        } else {
+            registers[register] = value;
+        }
+    }
+
+    private static Object operand(Chunk chunk, Object[] registers, int[] ints, int register) {
+        Object value = registers[register];
+        if (value == INT) {
+            return ints[register];
+        } else if (value == UNDEFINED) {
+            throw undefined(chunk, register);
+        }
+        return value;
+    }
+
+    private static void checkInts(String op, Chunk chunk, Object[] registers, int[] ints, int left, int right) {
+        if (registers[left] != INT || registers[right] != INT) {
+            throw invalidTypes(op, operand(chunk, registers, ints, left), operand(chunk, registers, ints, right));
+        }
+    }
+
+    // Language errors are reported like the tree walker reports them
+    private static RuntimeException undefined(Chunk chunk, int register) {
+        return new RuntimeException("Variable not defined: " + chunk.registerName(register));
+    }
+
+    private static RuntimeException invalidTypes(String op, Object left, Object right) {
+        return new RuntimeException(String.format("Invalid types for '%s' operator: %s, %s", op, typeName(left), typeName(right)));
+    }
+
+    private static String typeName(Object value) {
+        if (value instanceof Rope) {
+            return "String";
+        } else if (value instanceof ArrayValue) {
+            return "Array";
+        } else if (value instanceof MapValue) {
+            return "Map";
+        }
+        return value == null ? "null" : value.getClass().getSimpleName();
+    }
+}
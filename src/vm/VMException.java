@@ -0,0 +1,7 @@
+package vm;
+
+public class VMException extends RuntimeException {
+    public VMException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,58 @@
+package interpreter;
+
+import lexer.Lexer;
+import org.junit.jupiter.api.Test;
+import output.MemoryOutputSink;
+import parser.AST.AST;
+import parser.Parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// A program must print the same output and fail with the same exception and message on every engine.
+// The JIT compiles a program on its second run, so each program runs twice.
+class EngineParityTest {
+    @Test
+    void reportsTypeErrorsInConditionsAlike() {
+        assertSameOnAllEngines("let x = \"a\"; print x < 1;");
+        assertSameOnAllEngines("let x = \"a\"; if x < 1 then print 1 else print 2");
+        assertSameOnAllEngines("let x = \"a\"; if 1 >= x then print 1");
+        assertSameOnAllEngines("let x = \"a\"; while x > 0 { x = x - 1 }");
+        assertSameOnAllEngines("let x = 1; let y = \"b\"; if x - y <= 0 then print 1");
+        assertSameOnAllEngines("let x = \"a\"; if (x + 1) * 2 > 0 then print 1");
+        assertSameOnAllEngines("let b = 1; if b && true then print 1");
+        assertSameOnAllEngines("let b = true; let n = 2; if b || n then print 1");
+        assertSameOnAllEngines("let b = 1; if not b then print 1");
+    }
+
+    @Test
+    void runsWellTypedConditionsAlike() {
+        assertSameOnAllEngines("let x = 3; let y = 4; if x - y < 0 && not (x == y) then print x * y else print 0");
+        assertSameOnAllEngines("let i = 0; let t = 0; while i < 5 || false { t = t + i * 2; i = i + 1 } print t;");
+        assertSameOnAllEngines("let s = \"a\"; if s + 1 == \"a1\" then print s");
+    }
+
+    private static void assertSameOnAllEngines(String source) {
+        String expected = run(Engine.TREE_WALKER, source);
+        assertEquals(expected, run(Engine.VM, source), () -> "VM: " + source);
+        assertEquals(expected, run(Engine.JIT, source), () -> "JIT: " + source);
+    }
+
+    private static String run(Engine engine, String source) {
+        Interpreter interpreter = new Interpreter(engine);
+        MemoryOutputSink output = new MemoryOutputSink();
+        interpreter.setOutput(output);
+        AST program = interpreter.resolve(new Parser(new Lexer(source)).parseProgram());
+        StringBuilder outcome = new StringBuilder();
+        for (int run = 0; run < 2; run++) {
+            output.clear();
+            try {
+                interpreter.interpret(program);
+                outcome.append(output.getText());
+            } catch (RuntimeException e) {
+                outcome.append(output.getText()).append(e.getClass().getName()).append(": ").append(e.getMessage());
+            }
+            outcome.append('\n');
+        }
+        return outcome.toString();
+    }
+}
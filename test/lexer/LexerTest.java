@@ -0,0 +1,54 @@
+package lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Both lexers must read numbers in any script's digits as Integer.parseInt does
+class LexerTest {
+    @Test
+    void readsAsciiNumbers() {
+        assertNumbers("print 0 + 42 * 2147483647;", 0, 42, 2147483647);
+    }
+
+    @Test
+    void readsNonAsciiDigitsByTheirValue() {
+        // Arabic-Indic three, Devanagari one two, fullwidth seven
+        assertNumbers("print \u0663 + \u0967\u0968 + \uff17;", 3, 12, 7);
+        assertNumbers("let x = 1\u0660\u06f5;", 105);
+    }
+
+    private static void assertNumbers(String source, int... expected) {
+        assertEquals(toList(expected), numbers(new Lexer(source).tokenize()), "Lexer");
+
+        TokenBuffer buffer = new CompactLexer(source).tokenize();
+        List<Integer> compact = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); i++) {
+            if (buffer.getType(i) == TokenType.NUMBER) {
+                compact.add(buffer.getIntValue(i));
+            }
+        }
+        assertEquals(toList(expected), compact, "CompactLexer");
+    }
+
+    private static List<Integer> numbers(List<Token> tokens) {
+        List<Integer> values = new ArrayList<>();
+        for (Token token : tokens) {
+            if (token.getType() == TokenType.NUMBER) {
+                values.add((Integer) token.getValue());
+            }
+        }
+        return values;
+    }
+
+    private static List<Integer> toList(int[] values) {
+        List<Integer> list = new ArrayList<>();
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
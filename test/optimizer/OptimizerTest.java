@@ -0,0 +1,31 @@
+package optimizer;
+
+import lexer.Lexer;
+import org.junit.jupiter.api.Test;
+import parser.AST.AST;
+import parser.Parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Shared literal nodes must not move a literal away from its own source position
+class OptimizerTest {
+    @Test
+    void keepsEveryLiteralAtItsPosition() {
+        AST program = Optimizer.optimize(new Parser(new Lexer("let a = 0;\nlet b = 7;\nlet c = a + 7;\nlet d = 0 + a;\nlet e = 2 * 3 + a;\n")).parseProgram());
+        List<String> literals = new ArrayList<>();
+        collectLiterals(program, literals);
+        assertEquals(List.of("0 @1:9", "7 @2:9", "7 @3:13", "0 @4:9", "6 @5:11"), literals);
+    }
+
+    private static void collectLiterals(AST node, List<String> literals) {
+        if (node instanceof parser.AST.Integer) {
+            literals.add(((parser.AST.Integer) node).getValue() + " @" + node.getLine() + ":" + node.getColumn());
+        }
+        for (AST child : node.getChildren()) {
+            collectLiterals(child, literals);
+        }
+    }
+}
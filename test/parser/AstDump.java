@@ -0,0 +1,40 @@
+package parser;
+
+import parser.AST.AST;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// Writes a tree with the type and position of every node, so two parses can be compared as strings
+final class AstDump {
+    private AstDump() {
+    }
+
+    static String dump(AST node) {
+        StringBuilder out = new StringBuilder();
+        dump(node, 0, out);
+        return out.toString();
+    }
+
+    private static void dump(AST node, int depth, StringBuilder out) {
+        out.append("  ".repeat(depth)).append(node.getClass().getSimpleName())
+                .append(" @").append(node.getLine()).append(':').append(node.getColumn());
+        List<AST> children = node.getChildren();
+        if (children.isEmpty()) {
+            out.append(' ').append(node);
+        }
+        out.append('\n');
+        for (AST child : children) {
+            dump(child, depth + 1, out);
+        }
+    }
+
+    // The parse as a dump, or the type and message of the exception it threw
+    static String outcome(Supplier<AST> parse) {
+        try {
+            return dump(parse.get());
+        } catch (RuntimeException e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package parser;
+
+import lexer.Lexer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Every edit must leave the incremental parser with the tree, node positions and error that a full parse
+// of the edited text gives
+class IncrementalParserTest {
+    private static final String SOURCE = String.join("\n",
+            "let total = 0;",
+            "// comment; with a semicolon",
+            "for let i = 0; i < 10; i = i + 1 {",
+            "    if i == 3 || i == 5 then { total = total + i; } else print \"skip; this\"",
+            "}",
+            "fun twice(n) {",
+            "    return n * 2",
+            "}",
+            "let gr\u00f6\u00dfe = twice(total);",
+            "let a = [1, 2, 3]; let m = {\"k\": a[0]};",
+            "while total > 0 { total = total - 1 }",
+            "print gr\u00f6\u00dfe + m[\"k\"];",
+            "");
+
+    private static final String[] FRAGMENTS = {
+            "let x = 1;", "print x;", "\n", ";", "{", "}", "(", ")", "\"", "\"a;b\"", "// note\n", "x = x + 1;",
+            "if x > 1 then print x else print 0\n", "fun f(a) { return a }\n", "f(2)", " ", "else", "[1, 2]", "\u00e9",
+            "while false { }\n", "let", "=", "0", "total", "\n\n",
+    };
+
+    @Test
+    void insertsAndRemovesStatements() {
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        assertMatchesFullParse(parser);
+        int offset = SOURCE.indexOf("fun twice");
+        edit(parser, offset, 0, "let inserted = 7;\nprint inserted;\n");
+        edit(parser, offset, "let inserted = 7;\n".length(), "");
+        edit(parser, 0, "let total = 0;\n".length(), "let total = 5; let extra = total;\n\n");
+    }
+
+    @Test
+    void editsInsideStringsCommentsAndBlocks() {
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        edit(parser, SOURCE.indexOf("skip; this") + 4, 1, ";;\n;");
+        String text = parser.getText();
+        edit(parser, text.indexOf("a semicolon"), 0, "; let hidden = 1;\n");
+        text = parser.getText();
+        edit(parser, text.indexOf("return n * 2") + "return n * 2".length(), 0, " + n\n    + 1");
+        text = parser.getText();
+        edit(parser, text.indexOf("total - 1"), "total".length(), "gr\u00f6\u00dfe");
+    }
+
+    @Test
+    void recoversFromBrokenEdits() {
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        int brace = SOURCE.indexOf("{ total = total + i; }");
+        edit(parser, brace, 1, "");
+        edit(parser, SOURCE.indexOf("while") - 1, 0, "\nlet later = 1;");
+        edit(parser, brace, 0, "{");
+        edit(parser, 0, 0, "print (1 + ;\n");
+        edit(parser, 0, "print (1 + ;\n".length(), "");
+    }
+
+    @Test
+    void startsFromABrokenOrEmptySource() {
+        IncrementalParser parser = new IncrementalParser("let x = ;\nprint 1;\n");
+        assertMatchesFullParse(parser);
+        edit(parser, "let x = ".length(), 0, "2");
+        edit(parser, 0, parser.getText().length(), "");
+        edit(parser, 0, 0, "// only a comment\n");
+        edit(parser, parser.getText().length(), 0, "print 3;");
+    }
+
+    @Test
+    void randomEditsMatchFullParse() {
+        Random random = new Random(42);
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        for (int i = 0; i < 2000; i++) {
+            String text = parser.getText();
+            int offset = random.nextInt(text.length() + 1);
+            int removed = random.nextInt(4) == 0 ? random.nextInt(Math.min(20, text.length() - offset) + 1) : 0;
+            String inserted = random.nextInt(5) == 0 ? "" : FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+            edit(parser, offset, removed, inserted);
+            // Keep the source from drifting too far from a parseable program
+            if (i % 50 == 49) {
+                edit(parser, 0, parser.getText().length(), SOURCE);
+            }
+        }
+    }
+
+    private static void edit(IncrementalParser parser, int offset, int removedLength, String inserted) {
+        try {
+            parser.edit(offset, removedLength, inserted);
+        } catch (RuntimeException e) {
+            // Reported again by getProgram, which the comparison below checks
+        }
+        assertMatchesFullParse(parser);
+    }
+
+    private static void assertMatchesFullParse(IncrementalParser parser) {
+        String text = parser.getText();
+        assertEquals(AstDump.outcome(() -> new Parser(new Lexer(text)).parseProgram()),
+                AstDump.outcome(parser::getProgram), () -> "After editing to:\n" + text);
+    }
+}
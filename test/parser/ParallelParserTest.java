@@ -0,0 +1,87 @@
+package parser;
+
+import lexer.CompactLexer;
+import lexer.Lexer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// A chunked parse must give the tree, node positions and error of a sequential parse. Chunks of a few
+// dozen bytes split these sources at many statement boundaries.
+class ParallelParserTest {
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private static final String[] STATEMENTS = {
+            "let a = 1;",
+            "print a + 2;",
+            "let s = \"text; with\nnewline\";",
+            "// a comment; that mentions let\nlet b = a;",
+            "for let i = 0; i < 3; i = i + 1 { a = a + i; }",
+            "if a > 2 then { print a; } else { print \"small; value\"; }",
+            "fun add(x, y) {\n    return x + y\n}",
+            "let gr\u00f6\u00dfe = add(a, b);",
+            "let list = [1, 2,\n    3]; list.append(a);",
+            "let map = {\"k\": [1; 2]};",
+            "while a > 0 { a = a - 1 }",
+            "\tprint (a == 0) && true;",
+            "print {\"x\": 1}[\"x\"];",
+    };
+
+    @AfterAll
+    static void shutDown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    void chunkedParseMatchesSequentialParse() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            source.append(STATEMENTS[i % STATEMENTS.length]).append(i % 3 == 0 ? "\n\n" : "\n");
+        }
+        assertSameParse(source.toString().replace("[1; 2]", "[1, 2]"));
+    }
+
+    @Test
+    void reportsTheFirstErrorOfASequentialParse() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            source.append(STATEMENTS[i % STATEMENTS.length]).append('\n');
+        }
+        // "[1; 2]" fails to parse in every copy of that statement; the first one must be reported
+        assertSameParse(source.toString());
+        assertSameParse(source.toString().replace("[1; 2]", "[1, 2]") + "print $;\n" + "let x = ;\n");
+    }
+
+    @Test
+    void randomSourcesMatchSequentialParse() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            StringBuilder source = new StringBuilder();
+            int count = 20 + random.nextInt(60);
+            for (int i = 0; i < count; i++) {
+                String statement = STATEMENTS[random.nextInt(STATEMENTS.length)];
+                if (round % 4 != 0) {
+                    statement = statement.replace("[1; 2]", "[1, 2]");
+                }
+                source.append(statement).append(random.nextBoolean() ? "\n" : " ");
+            }
+            assertSameParse(source.toString());
+        }
+    }
+
+    private static void assertSameParse(String source) {
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        String sequential = AstDump.outcome(() -> new Parser(new CompactLexer(ByteBuffer.wrap(bytes)).tokenize().cursor()).parseProgram());
+        assertEquals(sequential, AstDump.outcome(() -> new Parser(new Lexer(source)).parseProgram()));
+        for (int chunkSize : new int[]{16, 64, 256}) {
+            assertEquals(sequential, AstDump.outcome(() -> ParallelParser.parse(ByteBuffer.wrap(bytes), POOL, chunkSize)),
+                    "Chunk size " + chunkSize);
+        }
+    }
+}